@@ -0,0 +1,311 @@
+package at.osa.redstonewire;
+
+/**
+ * Builds the triangle mesh of one sagging cable, without allocating anything.
+ * <p>
+ * RedstoneChainRenderer calls this for every visible cable in every frame, so everything
+ * here works on primitive floats:
+ * - The cable is split into segments along a sine-shaped sag curve (see sagAt)
+ * - Each segment is a cylinder: a ring of points around its start and end, with one quad
+ *   (two triangles) between each pair of neighboring ring points
+ * - The ring is the same for every segment of every cable - only its orientation changes.
+ *   Its cos/sin values are computed once per side count and kept in a table (see ring)
+ * <p>
+ * The geometry does not depend on any client classes: vertices are handed to a VertexSink,
+ * which the renderer forwards to Minecraft's vertex buffer. That also lets tests run the
+ * mesh code on a server.
+ * <p>
+ * A mesh can also be kept in packed form (pack/unpack), which CableMeshCache stores so a
+ * cable is only built once: per quad, the two ring points it starts from (one on each end
+ * of its segment) and its normal - 9 floats instead of 6 full vertices.
+ */
+public final class CableMesh {
+
+    /**
+     * Receives the vertices of a cable, three per triangle.
+     */
+    @FunctionalInterface
+    public interface VertexSink {
+        /**
+         * @param x       Vertex position
+         * @param y       Vertex position
+         * @param z       Vertex position
+         * @param nx      Surface normal
+         * @param ny      Surface normal
+         * @param nz      Surface normal
+         * @param segment Index of the cable segment the vertex belongs to (for striped colors)
+         */
+        void vertex(float x, float y, float z, float nx, float ny, float nz, int segment);
+    }
+
+    /**
+     * Ring tables by side count (index = sides), created on first use. Each table holds four
+     * floats per side: cos and sin of the side's angle, then cos and sin of the angle halfway
+     * to the next side (the direction the quad between them faces).
+     */
+    private static final float[][] RINGS = new float[361][];
+
+    /**
+     * Packed layout per quad: start ring point (x, y, z), end ring point (x, y, z), normal (x, y, z).
+     */
+    private static final int PACKED_FLOATS_PER_QUAD = 9;
+
+    private CableMesh() {
+    }
+
+    /**
+     * Number of vertices build() emits for one cable.
+     */
+    public static int vertexCount(int segments, int sides) {
+        return segments * sides * 6;
+    }
+
+    /**
+     * Number of floats pack() writes for one cable.
+     */
+    public static int packedSize(int segments, int sides) {
+        return segments * sides * PACKED_FLOATS_PER_QUAD;
+    }
+
+    /**
+     * Builds the mesh of one cable (same parameters as build) into its packed form.
+     *
+     * @param out Receives packedSize(segments, sides) floats
+     */
+    public static void pack(float fromX, float fromY, float fromZ, float toX, float toY, float toZ,
+                            int segments, int sides, float thickness, float sagAmount, float[] out) {
+        build(fromX, fromY, fromZ, toX, toY, toZ, segments, sides, thickness, sagAmount, new Packer(out, sides));
+    }
+
+    /**
+     * Emits a packed mesh, producing the same vertices build() would have.
+     *
+     * @param packed   Output of pack()
+     * @param segments The segment count it was packed with
+     * @param sides    The side count it was packed with
+     */
+    public static void unpack(float[] packed, int segments, int sides, VertexSink sink) {
+        for (int segment = 0; segment < segments; segment++) {
+            int first = segment * sides * PACKED_FLOATS_PER_QUAD;
+            for (int i = 0; i < sides; i++) {
+                int current = first + i * PACKED_FLOATS_PER_QUAD;
+                int next = first + (i + 1 == sides ? 0 : i + 1) * PACKED_FLOATS_PER_QUAD;
+                float nx = packed[current + 6];
+                float ny = packed[current + 7];
+                float nz = packed[current + 8];
+
+                // c0 = start ring point i, c1 = start ring point i+1, c2 = end ring point i+1, c3 = end ring point i
+                sink.vertex(packed[current], packed[current + 1], packed[current + 2], nx, ny, nz, segment);
+                sink.vertex(packed[next], packed[next + 1], packed[next + 2], nx, ny, nz, segment);
+                sink.vertex(packed[next + 3], packed[next + 4], packed[next + 5], nx, ny, nz, segment);
+                sink.vertex(packed[current], packed[current + 1], packed[current + 2], nx, ny, nz, segment);
+                sink.vertex(packed[next + 3], packed[next + 4], packed[next + 5], nx, ny, nz, segment);
+                sink.vertex(packed[current + 3], packed[current + 4], packed[current + 5], nx, ny, nz, segment);
+            }
+        }
+    }
+
+    /**
+     * Emits the mesh of one cable from (fromX, fromY, fromZ) to (toX, toY, toZ).
+     *
+     * @param segments  Number of cylinder segments along the cable
+     * @param sides     Number of quads around each segment (2 to 360; 2 is a flat ribbon)
+     * @param thickness Radius of the cable
+     * @param sagAmount Vertical offset at the middle of the cable (negative = down)
+     * @param sink      Receives the vertices
+     */
+    public static void build(float fromX, float fromY, float fromZ, float toX, float toY, float toZ,
+                             int segments, int sides, float thickness, float sagAmount, VertexSink sink) {
+        float[] ring = ring(sides);
+        boolean sags = sags(fromX, fromZ, toX, toZ);
+
+        float x1 = fromX;
+        float y1 = fromY;
+        float z1 = fromZ;
+        for (int i = 0; i < segments; i++) {
+            float t2 = (i + 1) / (float) segments;
+            float x2 = fromX + (toX - fromX) * t2;
+            float y2 = fromY + (toY - fromY) * t2 + (sags ? sagAt(t2, sagAmount) : 0);
+            float z2 = fromZ + (toZ - fromZ) * t2;
+
+            drawSegment(x1, y1, z1, x2, y2, z2, ring, sides, thickness, i, sink);
+
+            x1 = x2;
+            y1 = y2;
+            z1 = z2;
+        }
+    }
+
+    /**
+     * Writes the center of one segment's spine (halfway between its two points on the sag
+     * curve) to out[0..2]. Same parameters as build.
+     */
+    static void segmentCenter(float fromX, float fromY, float fromZ, float toX, float toY, float toZ,
+                              int segments, float sagAmount, int segment, float[] out) {
+        float t1 = segment / (float) segments;
+        float t2 = (segment + 1) / (float) segments;
+        float sag = sags(fromX, fromZ, toX, toZ) ? (sagAt(t1, sagAmount) + sagAt(t2, sagAmount)) / 2 : 0;
+        float t = (t1 + t2) / 2;
+        out[0] = fromX + (toX - fromX) * t;
+        out[1] = fromY + (toY - fromY) * t + sag;
+        out[2] = fromZ + (toZ - fromZ) * t;
+    }
+
+    /**
+     * Vertical cables hang straight.
+     */
+    private static boolean sags(float fromX, float fromZ, float toX, float toZ) {
+        return Math.abs(fromX - toX) + Math.abs(fromZ - toZ) >= 0.001f;
+    }
+
+    /**
+     * Sag of the cable at position t (0 = start, 1 = end): 0 at both ends, sagAmount in the middle.
+     */
+    private static float sagAt(float t, float sagAmount) {
+        return (float) Math.sin(t * Math.PI) * sagAmount;
+    }
+
+    /**
+     * Emits one segment as a cylinder around the line p1 → p2.
+     * <p>
+     * The ring is oriented with two unit vectors perpendicular to the segment: u = direction × up
+     * and v = direction × u. The ring point at angle a is then thickness * (u cos a + v sin a),
+     * which is the same point rotating u around the direction would give - without any
+     * trigonometry per segment.
+     */
+    private static void drawSegment(float x1, float y1, float z1, float x2, float y2, float z2,
+                                    float[] ring, int sides, float thickness, int segment, VertexSink sink) {
+        // Direction of the segment (the cylinder's spine)
+        float dx = x2 - x1;
+        float dy = y2 - y1;
+        float dz = z2 - z1;
+        float length = (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
+        if (length < 1.0e-6f) return;
+        dx /= length;
+        dy /= length;
+        dz /= length;
+
+        // u = direction × up, with up = Y (or X if the segment points straight up/down)
+        float ux, uy, uz;
+        if (Math.abs(dy) > 0.999f) {
+            ux = 0;
+            uy = dz;
+            uz = -dy;
+        } else {
+            ux = -dz;
+            uy = 0;
+            uz = dx;
+        }
+        float uLength = (float) Math.sqrt(ux * ux + uy * uy + uz * uz);
+        ux /= uLength;
+        uy /= uLength;
+        uz /= uLength;
+
+        // v = direction × u (already unit length: both are unit and perpendicular)
+        float vx = dy * uz - dz * uy;
+        float vy = dz * ux - dx * uz;
+        float vz = dx * uy - dy * ux;
+
+        for (int i = 0; i < sides; i++) {
+            int next = i + 1 == sides ? 0 : i + 1;
+            float cos = ring[i * 4];
+            float sin = ring[i * 4 + 1];
+            float cosNext = ring[next * 4];
+            float sinNext = ring[next * 4 + 1];
+
+            // Ring offsets of the two corners on each end
+            float ox = (ux * cos + vx * sin) * thickness;
+            float oy = (uy * cos + vy * sin) * thickness;
+            float oz = (uz * cos + vz * sin) * thickness;
+            float nextX = (ux * cosNext + vx * sinNext) * thickness;
+            float nextY = (uy * cosNext + vy * sinNext) * thickness;
+            float nextZ = (uz * cosNext + vz * sinNext) * thickness;
+
+            // The quad faces outward, halfway between its two ring points
+            float cosMid = ring[i * 4 + 2];
+            float sinMid = ring[i * 4 + 3];
+            float nx = ux * cosMid + vx * sinMid;
+            float ny = uy * cosMid + vy * sinMid;
+            float nz = uz * cosMid + vz * sinMid;
+
+            // Corners: c0 = p1 + current, c1 = p1 + next, c2 = p2 + next, c3 = p2 + current
+            // Triangle 1: c0, c1, c2
+            sink.vertex(x1 + ox, y1 + oy, z1 + oz, nx, ny, nz, segment);
+            sink.vertex(x1 + nextX, y1 + nextY, z1 + nextZ, nx, ny, nz, segment);
+            sink.vertex(x2 + nextX, y2 + nextY, z2 + nextZ, nx, ny, nz, segment);
+            // Triangle 2: c0, c2, c3
+            sink.vertex(x1 + ox, y1 + oy, z1 + oz, nx, ny, nz, segment);
+            sink.vertex(x2 + nextX, y2 + nextY, z2 + nextZ, nx, ny, nz, segment);
+            sink.vertex(x2 + ox, y2 + oy, z2 + oz, nx, ny, nz, segment);
+        }
+    }
+
+    /**
+     * Returns the unit ring table for a side count, computing it on first use.
+     * <p>
+     * A 2-sided "ring" is a flat ribbon (two quads back to back). It is turned a quarter so it
+     * stands upright along the cable and is seen from the side rather than edge-on.
+     */
+    static float[] ring(int sides) {
+        float[] ring = RINGS[sides];
+        if (ring == null) {
+            double phase = sides == 2 ? Math.PI / 2 : 0;
+            ring = new float[sides * 4];
+            for (int i = 0; i < sides; i++) {
+                double angle = phase + i * 2 * Math.PI / sides;
+                double mid = phase + (i + 0.5) * 2 * Math.PI / sides;
+                ring[i * 4] = (float) Math.cos(angle);
+                ring[i * 4 + 1] = (float) Math.sin(angle);
+                ring[i * 4 + 2] = (float) Math.cos(mid);
+                ring[i * 4 + 3] = (float) Math.sin(mid);
+            }
+            RINGS[sides] = ring;
+        }
+        return ring;
+    }
+
+    /**
+     * Writes build() output in packed form. build() emits the corners of each quad in the
+     * order c0, c1, c2, c0, c2, c3, so the quad's own start and end ring points are its first
+     * and last vertex.
+     */
+    private static final class Packer implements VertexSink {
+        private final float[] out;
+        private final int sides;
+        private int segment = -1;
+        private int vertex;
+
+        Packer(float[] out, int sides) {
+            this.out = out;
+            this.sides = sides;
+        }
+
+        @Override
+        public void vertex(float x, float y, float z, float nx, float ny, float nz, int segment) {
+            if (segment != this.segment) {
+                // Counted per segment: a degenerate segment emits nothing
+                this.segment = segment;
+                vertex = 0;
+            }
+            int base = (segment * sides + vertex / 6) * PACKED_FLOATS_PER_QUAD;
+            switch (vertex % 6) {
+                case 0 -> {
+                    out[base] = x;
+                    out[base + 1] = y;
+                    out[base + 2] = z;
+                    out[base + 6] = nx;
+                    out[base + 7] = ny;
+                    out[base + 8] = nz;
+                }
+                case 5 -> {
+                    out[base + 3] = x;
+                    out[base + 4] = y;
+                    out[base + 5] = z;
+                }
+                default -> {
+                }
+            }
+            vertex++;
+        }
+    }
+}
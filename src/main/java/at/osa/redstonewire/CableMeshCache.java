@@ -0,0 +1,253 @@
+package at.osa.redstonewire;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongList;
+import net.minecraft.core.BlockPos;
+import net.minecraft.world.phys.AABB;
+import net.neoforged.fml.event.config.ModConfigEvent;
+import net.neoforged.neoforge.event.level.LevelEvent;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * Client-side cache of built cable meshes, so each cable is built once instead of every frame.
+ * <p>
+ * A cable's geometry only depends on the offset between its two ends and the cable config
+ * (segments, sides, thickness, sag). It is built with CableMesh.pack() the first time the
+ * cable is drawn, and after that RedstoneChainRenderer only copies the packed vertices into
+ * the vertex buffer. Power only changes the cable's colors, which are applied while copying,
+ * so a power change needs no rebuild.
+ * <p>
+ * Cached meshes are dropped when:
+ * - The owning chain block's connections change (RedstoneChainEvent.ConnectionsChanged)
+ * - The config is loaded or reloaded (ModConfigEvent) - every mesh may look different now
+ * - The client level unloads
+ * - More than Config.CABLE_MESH_CACHE_SIZE meshes are cached: the chain blocks that were drawn
+ *   least recently are evicted first
+ * <p>
+ * Meshes are keyed by the position of the block that draws the cable (the end with the smaller
+ * BlockPos.asLong() key), then by the other end and the level of detail. A cable the camera
+ * moves past may therefore be cached at several levels at once; each counts toward the limit.
+ * <p>
+ * Next to the meshes, each cable's bounding box (covering its sag) and each chain block's render
+ * bounding box are cached here as well, for culling. They are dropped together with the meshes
+ * but do not count toward the size limit.
+ * Only the render thread uses the cache.
+ */
+public final class CableMeshCache {
+
+    /**
+     * Cached cables by owner position, least recently drawn first.
+     */
+    private static final Long2ObjectLinkedOpenHashMap<Entry> ENTRIES = new Long2ObjectLinkedOpenHashMap<>();
+
+    /**
+     * Number of meshes in all entries.
+     */
+    private static int cachedMeshes;
+
+    /**
+     * Bumped on every config load/reload. Config events may arrive on another thread, so they
+     * only bump this, and the render thread clears the cache the next time it is used.
+     */
+    private static volatile int configGeneration;
+    private static int cachedGeneration;
+
+    private CableMeshCache() {
+    }
+
+    /**
+     * Returns the packed mesh of a cable, building it on first use.
+     *
+     * @param owner  Position of the block that draws the cable, as BlockPos.asLong()
+     * @param target Position of the other end, as BlockPos.asLong()
+     * @param detail Level of detail the mesh is built with (see RedstoneChainRenderer.detailFor)
+     * @return Packed mesh (see CableMesh.pack), relative to the owner block
+     */
+    static float[] getMesh(long owner, long target, int detail, float fromX, float fromY, float fromZ,
+                           float toX, float toY, float toZ, int segments, int sides, float thickness, float sagAmount) {
+        Entry entry = entry(owner);
+        int cable = entry.indexOf(target);
+        float[] mesh = entry.meshes[cable][detail];
+        if (mesh == null) {
+            mesh = new float[CableMesh.packedSize(segments, sides)];
+            CableMesh.pack(fromX, fromY, fromZ, toX, toY, toZ, segments, sides, thickness, sagAmount, mesh);
+            entry.meshes[cable][detail] = mesh;
+            entry.meshCount++;
+            cachedMeshes++;
+            evictOverflow();
+        }
+        return mesh;
+    }
+
+    /**
+     * Returns the world-space bounding box of a cable, computing it on first use.
+     */
+    static AABB getBounds(long owner, long target, float thickness, float sagAmount) {
+        Entry entry = entry(owner);
+        int cable = entry.indexOf(target);
+        AABB bounds = entry.bounds[cable];
+        if (bounds == null) {
+            bounds = cableBounds(owner, target, thickness, sagAmount);
+            entry.bounds[cable] = bounds;
+        }
+        return bounds;
+    }
+
+    /**
+     * Returns the render bounding box of a chain block: the block itself and every cable it
+     * draws (those to connections with a larger key). Computed on first use.
+     *
+     * @param connections The chain block's connections, as BlockPos.asLong()
+     */
+    static AABB getRenderBounds(long owner, LongList connections, float thickness, float sagAmount) {
+        Entry entry = entry(owner);
+        if (entry.renderBounds == null) {
+            AABB bounds = new AABB(BlockPos.of(owner));
+            for (int i = 0; i < connections.size(); i++) {
+                long connection = connections.getLong(i);
+                if (owner < connection) {
+                    bounds = bounds.minmax(getBounds(owner, connection, thickness, sagAmount));
+                }
+            }
+            entry.renderBounds = bounds;
+        }
+        return entry.renderBounds;
+    }
+
+    /**
+     * Computes the box around a cable's sag curve, including its thickness.
+     * <p>
+     * Cables run between the top centers of their two blocks. Along the cable, the curve is
+     * the straight line plus sagAt(t), which peaks with the full sag amount in the middle - so
+     * the curve stays between the two ends and the sagged middle point. Vertical cables do not
+     * sag (see CableMesh.build).
+     */
+    static AABB cableBounds(long owner, long target, float thickness, float sagAmount) {
+        double ax = BlockPos.getX(owner) + 0.5;
+        double ay = BlockPos.getY(owner) + 1.0;
+        double az = BlockPos.getZ(owner) + 0.5;
+        double bx = BlockPos.getX(target) + 0.5;
+        double by = BlockPos.getY(target) + 1.0;
+        double bz = BlockPos.getZ(target) + 0.5;
+
+        double minY = Math.min(ay, by);
+        double maxY = Math.max(ay, by);
+        if (ax != bx || az != bz) {
+            double middleY = (ay + by) / 2 + sagAmount;
+            minY = Math.min(minY, middleY);
+            maxY = Math.max(maxY, middleY);
+        }
+
+        return new AABB(
+                Math.min(ax, bx) - thickness, minY - thickness, Math.min(az, bz) - thickness,
+                Math.max(ax, bx) + thickness, maxY + thickness, Math.max(az, bz) + thickness);
+    }
+
+    /**
+     * Returns the cache entry of an owner (creating it) and marks it as most recently drawn.
+     */
+    private static Entry entry(long owner) {
+        if (cachedGeneration != configGeneration) {
+            clear();
+            cachedGeneration = configGeneration;
+        }
+
+        Entry entry = ENTRIES.getAndMoveToLast(owner);
+        if (entry == null) {
+            entry = new Entry();
+            ENTRIES.putAndMoveToLast(owner, entry);
+        }
+        return entry;
+    }
+
+    /**
+     * Drops the cached cables drawn by a chain block (its connections changed).
+     */
+    public static void invalidate(long owner) {
+        Entry entry = ENTRIES.remove(owner);
+        if (entry != null) {
+            cachedMeshes -= entry.meshCount;
+        }
+    }
+
+    static void onConnectionsChanged(RedstoneChainEvent.ConnectionsChanged event) {
+        invalidate(event.getChain().getBlockPos().asLong());
+    }
+
+    public static void clear() {
+        ENTRIES.clear();
+        cachedMeshes = 0;
+    }
+
+    /**
+     * @return Number of meshes currently cached
+     */
+    public static int size() {
+        return cachedMeshes;
+    }
+
+    /**
+     * Evicts the least recently drawn chain blocks until the cache fits its size limit.
+     * The most recently drawn one is always kept.
+     */
+    private static void evictOverflow() {
+        int limit = Config.getCableMeshCacheSize();
+        while (cachedMeshes > limit && ENTRIES.size() > 1) {
+            cachedMeshes -= ENTRIES.removeFirst().meshCount;
+        }
+    }
+
+    // ===== Invalidation events =====
+
+    /**
+     * Mod bus listener for ModConfigEvent.Loading and ModConfigEvent.Reloading.
+     */
+    static void onConfigChanged(ModConfigEvent event) {
+        configGeneration++;
+    }
+
+    /**
+     * Game bus listener: drops all meshes when the client level unloads.
+     */
+    static void onLevelUnload(LevelEvent.Unload event) {
+        if (event.getLevel().isClientSide()) {
+            clear();
+        }
+    }
+
+    /**
+     * The cables one chain block draws: per connection its bounds and its mesh at each level of
+     * detail, plus the chain block's render bounding box.
+     */
+    private static final class Entry {
+        long[] targets = new long[2];
+        AABB[] bounds = new AABB[2];
+        float[][][] meshes = new float[2][][];
+        int count;
+        int meshCount;
+        @Nullable
+        AABB renderBounds;
+
+        /**
+         * Returns the slot of a cable, adding it if it is new.
+         */
+        int indexOf(long target) {
+            for (int i = 0; i < count; i++) {
+                if (targets[i] == target) {
+                    return i;
+                }
+            }
+
+            if (count == targets.length) {
+                targets = Arrays.copyOf(targets, count * 2);
+                bounds = Arrays.copyOf(bounds, count * 2);
+                meshes = Arrays.copyOf(meshes, count * 2);
+            }
+            targets[count] = target;
+            meshes[count] = new float[RedstoneChainRenderer.DETAIL_LEVELS][];
+            return count++;
+        }
+    }
+}
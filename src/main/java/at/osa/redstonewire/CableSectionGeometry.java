@@ -0,0 +1,351 @@
+package at.osa.redstonewire;
+
+import com.mojang.blaze3d.vertex.PoseStack;
+import com.mojang.blaze3d.vertex.VertexConsumer;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongList;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.multiplayer.ClientLevel;
+import net.minecraft.client.renderer.LevelRenderer;
+import net.minecraft.client.renderer.RenderType;
+import net.minecraft.client.renderer.texture.TextureAtlasSprite;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.SectionPos;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.inventory.InventoryMenu;
+import net.minecraft.world.level.BlockAndTintGetter;
+import net.minecraft.world.phys.AABB;
+import net.neoforged.fml.event.config.ModConfigEvent;
+import net.neoforged.neoforge.client.event.AddSectionGeometryEvent;
+import net.neoforged.neoforge.event.level.LevelEvent;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Bakes cables into the static geometry of the chunk sections they pass through, so drawing
+ * them costs nothing per frame - the same as regular blocks (Config.BAKE_CABLE_GEOMETRY).
+ * <p>
+ * How it works:
+ * - The index maps each chunk section to the cables whose bounding box touches it
+ *   (CableMeshCache.cableBounds). It is kept up to date from RedstoneChainEvent whenever a
+ *   chain block's connections change, and when it unloads
+ * - When Minecraft compiles a section, AddSectionGeometryEvent asks for extra geometry.
+ *   The cables of that section are looked up and their power is read on the main thread;
+ *   the meshes are then built on the section compile thread (see render)
+ * - Each segment of a cable is baked into the section that contains its center. Long cables
+ *   are therefore split over the sections they cross, and section culling keeps working
+ * - A section is only re-meshed when one of its cables changes: connections (update, remove)
+ *   or the owning block's power (onPowerChanged) - nothing else touches the cables
+ * <p>
+ * Baked cables always use the configured sides and segments: distance detail and the render
+ * distance of RedstoneChainRenderer do not apply, the chunk render distance does. Sections
+ * are vertex-colored solid geometry on the neoforge:white sprite, so the colors match the
+ * block entity renderer.
+ * <p>
+ * Only the client main thread touches the index.
+ */
+public final class CableSectionGeometry {
+
+    /**
+     * Blank sprite in the block atlas, provided by NeoForge.
+     */
+    private static final ResourceLocation WHITE_SPRITE = ResourceLocation.fromNamespaceAndPath("neoforge", "white");
+
+    /**
+     * Cables by section (SectionPos.asLong()), as (owner, target) pairs of BlockPos.asLong() keys.
+     */
+    private static final Long2ObjectOpenHashMap<LongArrayList> SECTIONS = new Long2ObjectOpenHashMap<>();
+
+    /**
+     * The targets of the cables each chain block draws (those with a larger key), as indexed.
+     */
+    private static final Long2ObjectOpenHashMap<long[]> CABLES = new Long2ObjectOpenHashMap<>();
+
+    private CableSectionGeometry() {
+    }
+
+    /**
+     * Whether cables are baked into chunk sections instead of drawn by RedstoneChainRenderer.
+     */
+    static boolean isEnabled() {
+        return Config.isBakeCableGeometry();
+    }
+
+    // ===== Index =====
+
+    /**
+     * Re-indexes the cables a chain block draws and re-meshes the sections they touched
+     * before and touch now.
+     *
+     * @param connections The chain block's connections, as BlockPos.asLong()
+     */
+    static void update(long owner, LongList connections) {
+        remove(owner);
+
+        int count = 0;
+        long[] targets = new long[connections.size()];
+        for (int i = 0; i < connections.size(); i++) {
+            long connection = connections.getLong(i);
+            if (owner < connection) {
+                targets[count++] = connection;
+                forEachSection(owner, connection, section -> {
+                    LongArrayList cables = SECTIONS.get(section);
+                    if (cables == null) {
+                        cables = new LongArrayList();
+                        SECTIONS.put(section, cables);
+                    }
+                    cables.add(owner);
+                    cables.add(connection);
+                    markDirty(section);
+                });
+            }
+        }
+        if (count > 0) {
+            CABLES.put(owner, Arrays.copyOf(targets, count));
+        }
+    }
+
+    /**
+     * Drops the cables a chain block draws (it unloaded or was removed).
+     */
+    static void remove(long owner) {
+        long[] targets = CABLES.remove(owner);
+        if (targets == null) return;
+
+        for (long target : targets) {
+            forEachSection(owner, target, section -> {
+                LongArrayList cables = SECTIONS.get(section);
+                if (cables != null) {
+                    for (int i = cables.size() - 2; i >= 0; i -= 2) {
+                        if (cables.getLong(i) == owner && cables.getLong(i + 1) == target) {
+                            cables.removeElements(i, i + 2);
+                        }
+                    }
+                    if (cables.isEmpty()) {
+                        SECTIONS.remove(section);
+                    }
+                }
+                markDirty(section);
+            });
+        }
+    }
+
+    /**
+     * Re-meshes the sections of the cables a chain block draws - their color follows its power.
+     */
+    static void onPowerChanged(long owner) {
+        long[] targets = CABLES.get(owner);
+        if (targets == null) return;
+
+        for (long target : targets) {
+            forEachSection(owner, target, CableSectionGeometry::markDirty);
+        }
+    }
+
+    static void onChainConnectionsChanged(RedstoneChainEvent.ConnectionsChanged event) {
+        RedstoneChainEntity chain = event.getChain();
+        update(chain.getBlockPos().asLong(), chain.getConnectionKeys());
+    }
+
+    static void onChainRemoved(RedstoneChainEvent.Removed event) {
+        remove(event.getChain().getBlockPos().asLong());
+    }
+
+    static void onChainPowerChanged(RedstoneChainEvent.PowerChanged event) {
+        onPowerChanged(event.getChain().getBlockPos().asLong());
+    }
+
+    public static void clear() {
+        SECTIONS.clear();
+        CABLES.clear();
+    }
+
+    /**
+     * @return Number of chunk sections with baked cables
+     */
+    public static int size() {
+        return SECTIONS.size();
+    }
+
+    private static void forEachSection(long owner, long target, LongConsumer action) {
+        AABB bounds = CableMeshCache.cableBounds(owner, target,
+                (float) Config.getCableThickness(), (float) Config.getCableSagAmount());
+        int minX = SectionPos.blockToSectionCoord(bounds.minX);
+        int minY = SectionPos.blockToSectionCoord(bounds.minY);
+        int minZ = SectionPos.blockToSectionCoord(bounds.minZ);
+        int maxX = SectionPos.blockToSectionCoord(bounds.maxX);
+        int maxY = SectionPos.blockToSectionCoord(bounds.maxY);
+        int maxZ = SectionPos.blockToSectionCoord(bounds.maxZ);
+        for (int x = minX; x <= maxX; x++) {
+            for (int y = minY; y <= maxY; y++) {
+                for (int z = minZ; z <= maxZ; z++) {
+                    action.accept(SectionPos.asLong(x, y, z));
+                }
+            }
+        }
+    }
+
+    private static void markDirty(long section) {
+        if (!isEnabled()) return;
+        Minecraft.getInstance().levelRenderer.setSectionDirty(
+                SectionPos.x(section), SectionPos.y(section), SectionPos.z(section));
+    }
+
+    // ===== Section geometry =====
+
+    /**
+     * Game bus listener: adds the cables of a section that is about to be compiled.
+     * <p>
+     * Runs on the main thread. Everything the compile thread needs is copied here, so it
+     * never reads block entities or the config.
+     */
+    static void onAddSectionGeometry(AddSectionGeometryEvent event) {
+        if (!isEnabled()) return;
+        BlockPos origin = event.getSectionOrigin();
+        LongArrayList cables = SECTIONS.get(SectionPos.asLong(origin));
+        if (cables == null || cables.isEmpty()) return;
+
+        // Per cable: from (x, y, z), to (x, y, z), red, redAlt - relative to the section origin
+        int count = cables.size() / 2;
+        float[] snapshot = new float[count * 8];
+        for (int i = 0; i < count; i++) {
+            long owner = cables.getLong(i * 2);
+            long target = cables.getLong(i * 2 + 1);
+            int power = event.getLevel().getBlockEntity(BlockPos.of(owner)) instanceof RedstoneChainEntity chain
+                    ? chain.getSignal() : 0;
+            int base = i * 8;
+            // Top center of both blocks, as drawn by RedstoneChainRenderer
+            snapshot[base] = BlockPos.getX(owner) - origin.getX() + 0.5f;
+            snapshot[base + 1] = BlockPos.getY(owner) - origin.getY() + 1.0f;
+            snapshot[base + 2] = BlockPos.getZ(owner) - origin.getZ() + 0.5f;
+            snapshot[base + 3] = BlockPos.getX(target) - origin.getX() + 0.5f;
+            snapshot[base + 4] = BlockPos.getY(target) - origin.getY() + 1.0f;
+            snapshot[base + 5] = BlockPos.getZ(target) - origin.getZ() + 0.5f;
+            snapshot[base + 6] = RedstoneChainRenderer.cableRed(power, false);
+            snapshot[base + 7] = RedstoneChainRenderer.cableRed(power, true);
+        }
+
+        SectionCables section = new SectionCables(origin.immutable(), snapshot, count,
+                Config.getCableSegments(), Config.getCableSides(),
+                (float) Config.getCableThickness(), (float) Config.getCableSagAmount(),
+                (float) Config.getGreenValue(), (float) Config.getBlueValue(),
+                (float) Config.getGreenValueAlt(), (float) Config.getBlueValueAlt(),
+                Minecraft.getInstance().getTextureAtlas(InventoryMenu.BLOCK_ATLAS).apply(WHITE_SPRITE));
+        event.addRenderer(context -> section.render(context.getOrCreateChunkBuffer(RenderType.solid()),
+                context.getPoseStack(), context.getRegion()));
+    }
+
+    // ===== Invalidation events =====
+
+    /**
+     * Mod bus listener for ModConfigEvent.Reloading: the cable shape, colors or the bake
+     * setting may have changed, so every section is re-indexed and re-meshed.
+     */
+    static void onConfigChanged(ModConfigEvent event) {
+        Minecraft minecraft = Minecraft.getInstance();
+        minecraft.execute(() -> {
+            Long2ObjectOpenHashMap<long[]> cables = CABLES.clone();
+            clear();
+            cables.forEach((owner, targets) -> update(owner, LongArrayList.wrap(targets)));
+            if (minecraft.level != null) {
+                minecraft.levelRenderer.allChanged();
+            }
+        });
+    }
+
+    /**
+     * Game bus listener: drops the index when the client level unloads.
+     */
+    static void onLevelUnload(LevelEvent.Unload event) {
+        if (event.getLevel() instanceof ClientLevel) {
+            clear();
+        }
+    }
+
+    /**
+     * The cables of one section, copied on the main thread for the section compile thread.
+     */
+    private record SectionCables(BlockPos origin, float[] cables, int count, int segments, int sides,
+                                 float thickness, float sagAmount, float green, float blue,
+                                 float greenAlt, float blueAlt, TextureAtlasSprite sprite) {
+
+        /**
+         * Builds the segments of each cable whose center lies in this section. Runs on the
+         * section compile thread, reading light from its copy of the level (region).
+         */
+        void render(VertexConsumer consumer, PoseStack poseStack, BlockAndTintGetter region) {
+            float[] center = new float[3];
+            boolean[] inSection = new boolean[segments];
+            int[] light = new int[segments];
+            BlockPos.MutableBlockPos pos = new BlockPos.MutableBlockPos();
+            SectionVertexWriter writer = new SectionVertexWriter(consumer, poseStack.last(), sprite);
+
+            for (int i = 0; i < count; i++) {
+                int base = i * 8;
+                float fromX = cables[base], fromY = cables[base + 1], fromZ = cables[base + 2];
+                float toX = cables[base + 3], toY = cables[base + 4], toZ = cables[base + 5];
+
+                boolean any = false;
+                for (int segment = 0; segment < segments; segment++) {
+                    CableMesh.segmentCenter(fromX, fromY, fromZ, toX, toY, toZ, segments, sagAmount, segment, center);
+                    int x = (int) Math.floor(center[0]);
+                    int y = (int) Math.floor(center[1]);
+                    int z = (int) Math.floor(center[2]);
+                    inSection[segment] = x >= 0 && x < 16 && y >= 0 && y < 16 && z >= 0 && z < 16;
+                    if (inSection[segment]) {
+                        light[segment] = LevelRenderer.getLightColor(region,
+                                pos.set(origin.getX() + x, origin.getY() + y, origin.getZ() + z));
+                        any = true;
+                    }
+                }
+                if (!any) continue;
+
+                writer.inSection = inSection;
+                writer.light = light;
+                writer.red = cables[base + 6];
+                writer.redAlt = cables[base + 7];
+                writer.green = green;
+                writer.blue = blue;
+                writer.greenAlt = greenAlt;
+                writer.blueAlt = blueAlt;
+                CableMesh.build(fromX, fromY, fromZ, toX, toY, toZ, segments, sides, thickness, sagAmount, writer);
+            }
+        }
+    }
+
+    /**
+     * Writes CableMesh vertices into a section buffer (block vertex format), skipping the
+     * segments that belong to other sections. The triangles face outward counter-clockwise,
+     * so the section's back-face culling only hides the far side of the cable.
+     */
+    private static final class SectionVertexWriter implements CableMesh.VertexSink {
+        private final VertexConsumer consumer;
+        private final PoseStack.Pose pose;
+        private final float u;
+        private final float v;
+        boolean[] inSection;
+        int[] light;
+        float red, green, blue;
+        float redAlt, greenAlt, blueAlt;
+
+        SectionVertexWriter(VertexConsumer consumer, PoseStack.Pose pose, TextureAtlasSprite sprite) {
+            this.consumer = consumer;
+            this.pose = pose;
+            this.u = sprite.getU(0.5f);
+            this.v = sprite.getV(0.5f);
+        }
+
+        @Override
+        public void vertex(float x, float y, float z, float nx, float ny, float nz, int segment) {
+            if (!inSection[segment]) return;
+            boolean alt = (segment & 1) != 0;
+            consumer.addVertex(pose, x, y, z)
+                    .setColor(alt ? redAlt : red, alt ? greenAlt : green, alt ? blueAlt : blue, 1f)
+                    .setUv(u, v)
+                    .setLight(light[segment])
+                    .setNormal(pose, nx, ny, nz);
+        }
+    }
+}
@@ -40,6 +40,17 @@ public class Config {
         return Config.UPDATE_INTERVAL_TICKS.getAsInt();
     }
 
+    public static final ModConfigSpec.IntValue MAX_UPDATE_INTERVAL_TICKS = BUILDER
+            .comment("Ceiling for the periodic network update interval (in ticks). A network whose input stays the same doubles its interval after every periodic update, up to this value. Any neighbor or connection change resets it to Update Interval.")
+            .defineInRange("maxUpdateIntervalTicks", 1200, 1, Integer.MAX_VALUE);
+
+    /**
+     * Never below the base interval, even if configured lower.
+     */
+    public static int getMaxUpdateIntervalTicks() {
+        return Math.max(Config.MAX_UPDATE_INTERVAL_TICKS.getAsInt(), getUpdateIntervalTicks());
+    }
+
     public static final ModConfigSpec.IntValue SIGNAL_LOSS_DELAY_TICKS = BUILDER
             .comment("How many ticks to wait before clearing cached signal after input is lost. Prevents flickering when power briefly turns off.")
             .defineInRange("signalLossDelayTicks", 1, 0, Integer.MAX_VALUE);
@@ -48,6 +59,46 @@ public class Config {
         return Config.SIGNAL_LOSS_DELAY_TICKS.getAsInt();
     }
 
+    public static final ModConfigSpec.BooleanValue IMMEDIATE_NEIGHBOR_RESPONSE = BUILDER
+            .comment("Evaluate a network immediately on every neighbor change instead of once at the end of the tick. Only needed for builds that rely on same-tick ordering; costs one full evaluation per neighbor update.")
+            .define("immediateNeighborResponse", false);
+
+    public static boolean isImmediateNeighborResponse() {
+        return Config.IMMEDIATE_NEIGHBOR_RESPONSE.getAsBoolean();
+    }
+
+    public static final ModConfigSpec.BooleanValue NETWORK_POWER_MODE = BUILDER
+            .comment("Keep network power on the network instead of in every chain block. Only chain blocks that touch other blocks get their block state updated, so a power change costs O(output blocks) instead of O(network). Cables between blocks without neighbors keep their last color.")
+            .define("networkPowerMode", false);
+
+    public static boolean isNetworkPowerMode() {
+        return Config.NETWORK_POWER_MODE.getAsBoolean();
+    }
+
+    public static final ModConfigSpec.IntValue MAX_NETWORK_SIZE = BUILDER
+            .comment("Maximum number of chain blocks in one network. Connections that would grow a network beyond this are refused. Networks that are already larger (older worlds, lowered limit) are updated over several ticks, at most this many blocks per tick, and reported to operators.")
+            .defineInRange("maxNetworkSize", 4096, 2, Integer.MAX_VALUE);
+
+    public static int getMaxNetworkSize() {
+        return Config.MAX_NETWORK_SIZE.getAsInt();
+    }
+
+    public static final ModConfigSpec.IntValue MAX_TRANSITIONS_PER_SECOND = BUILDER
+            .comment("Maximum power changes per second for one chain network. Networks driven by faster clocks, or oscillating through comparators, are slowed down to this rate and logged once. 0 disables the limit.")
+            .defineInRange("maxTransitionsPerSecond", 10, 0, 1000);
+
+    public static int getMaxTransitionsPerSecond() {
+        return Config.MAX_TRANSITIONS_PER_SECOND.getAsInt();
+    }
+
+    public static final ModConfigSpec.IntValue TICK_BUDGET_MICROS = BUILDER
+            .comment("Maximum time in microseconds that network evaluations may use per level tick. Networks that do not fit are evaluated first thing next tick. At least one network is evaluated every tick. 0 disables the budget.")
+            .defineInRange("tickBudgetMicros", 5000, 0, 50000);
+
+    public static int getTickBudgetMicros() {
+        return Config.TICK_BUDGET_MICROS.getAsInt();
+    }
+
     static {
         BUILDER.pop();
     }
@@ -90,13 +141,45 @@ public class Config {
     }
 
     public static final ModConfigSpec.IntValue MAX_RENDER_DISTANCE = BUILDER
-            .comment("Maximum distance to render cables (in blocks)")
+            .comment("Maximum distance to render cables (in blocks). Cables further away, or outside the view, are skipped")
             .defineInRange("maxRenderDistance", 128, 1, 512);
 
     public static int getViewDistance() {
         return Config.MAX_RENDER_DISTANCE.getAsInt();
     }
 
+    public static final ModConfigSpec.IntValue CABLE_LOD_MEDIUM_DISTANCE = BUILDER
+            .comment("Distance (in blocks) from which cables are drawn with a third of their sides and half their segments")
+            .defineInRange("cableLodMediumDistance", 24, 0, 512);
+
+    public static int getCableLodMediumDistance() {
+        return Config.CABLE_LOD_MEDIUM_DISTANCE.getAsInt();
+    }
+
+    public static final ModConfigSpec.IntValue CABLE_LOD_FAR_DISTANCE = BUILDER
+            .comment("Distance (in blocks) from which cables are drawn as a flat ribbon with a quarter of their segments. Never closer than cableLodMediumDistance")
+            .defineInRange("cableLodFarDistance", 64, 0, 512);
+
+    public static int getCableLodFarDistance() {
+        return Math.max(Config.CABLE_LOD_FAR_DISTANCE.getAsInt(), getCableLodMediumDistance());
+    }
+
+    public static final ModConfigSpec.IntValue CABLE_MESH_CACHE_SIZE = BUILDER
+            .comment("Maximum number of cable meshes kept on the client so they are not rebuilt every frame. The cables drawn least recently are dropped first")
+            .defineInRange("cableMeshCacheSize", 2048, 16, 65536);
+
+    public static int getCableMeshCacheSize() {
+        return Config.CABLE_MESH_CACHE_SIZE.getAsInt();
+    }
+
+    public static final ModConfigSpec.BooleanValue BAKE_CABLE_GEOMETRY = BUILDER
+            .comment("Bake cables into the chunk geometry like regular blocks instead of drawing them every frame. Sections are only re-meshed when a cable or its power changes. Baked cables always use full detail and the chunk render distance")
+            .define("bakeCableGeometry", true);
+
+    public static boolean isBakeCableGeometry() {
+        return Config.BAKE_CABLE_GEOMETRY.getAsBoolean();
+    }
+
     static {
         BUILDER.pop();
     }
@@ -1,16 +1,19 @@
 package at.osa.redstonewire;
 
+import it.unimi.dsi.fastutil.longs.LongArrayFIFOQueue;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
 import net.minecraft.core.BlockPos;
 import net.minecraft.core.Direction;
 import net.minecraft.server.level.ServerLevel;
 import net.minecraft.util.RandomSource;
 import net.minecraft.world.level.BlockGetter;
 import net.minecraft.world.level.Level;
+import net.minecraft.world.level.LevelReader;
 import net.minecraft.world.level.block.Block;
 import net.minecraft.world.level.block.EntityBlock;
 import net.minecraft.world.level.block.entity.BlockEntity;
-import net.minecraft.world.level.block.entity.BlockEntityTicker;
-import net.minecraft.world.level.block.entity.BlockEntityType;
 import net.minecraft.world.level.block.state.BlockState;
 import net.minecraft.world.level.block.state.StateDefinition;
 import net.minecraft.world.level.block.state.properties.BlockStateProperties;
@@ -18,14 +21,9 @@ import net.minecraft.world.level.block.state.properties.IntegerProperty;
 import net.minecraft.world.phys.shapes.CollisionContext;
 import net.minecraft.world.phys.shapes.Shapes;
 import net.minecraft.world.phys.shapes.VoxelShape;
+import net.neoforged.neoforge.common.NeoForge;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.LinkedList;
-import java.util.Queue;
-import java.util.Set;
-
 /**
  * A redstone chain block that can transmit redstone signals.
  * <p>
@@ -192,12 +190,13 @@ public class RedstoneChainBlock extends Block implements EntityBlock {
      * What happens inside:
      * 1. We first check if we're on the server side (!level.isClientSide) - redstone logic
      * should only run on the server, not the client
-     * 2. We check if the neighbor that changed is NOT another RedstoneChainBlock - this prevents
-     * feedback loops where chain blocks keep updating each other endlessly
-     * 3. We try to get the BlockEntity for this position
-     * 4. If we have a RedstoneChainEntity (meaning this block has wire connections):
-     * - We call updateSignalInNetwork() which will recalculate power across all connected wires
-     * 5. If we don't have a BlockEntity (traditional adjacent-only connections):
+     * 2. We try to get the BlockEntity for this position
+     * 3. If we have a RedstoneChainEntity (meaning this block has wire connections):
+     * - We call onNeighborChanged(), which re-reads the input port facing the neighbor and
+     * only re-evaluates the network if that port's signal actually changed. Updates from
+     * other chain blocks therefore never cause feedback loops - they are not ports.
+     * 4. If we don't have a BlockEntity (traditional adjacent-only connections) and the
+     * neighbor is NOT another RedstoneChainBlock:
      * - We schedule a tick (delayed update) to recalculate power in 1 game tick
      * <p>
      * The delayed tick prevents performance issues when many blocks change at once.
@@ -211,53 +210,23 @@ public class RedstoneChainBlock extends Block implements EntityBlock {
      */
     @Override
     public void neighborChanged(BlockState state, Level level, BlockPos pos, Block neighborBlock, BlockPos neighborPos, boolean movedByPiston) {
-        if (!level.isClientSide && !(neighborBlock instanceof RedstoneChainBlock)) {
+        if (!level.isClientSide) {
 
             BlockEntity be = level.getBlockEntity(pos);
             if (be instanceof RedstoneChainEntity chain) {
-                // Use the network update for wire-connected blocks
-                chain.updateSignalInNetwork();
-            } else {
+                // Refresh the input port on that side; the network only updates if it changed
+                chain.onNeighborChanged(neighborPos);
+            } else if (!(neighborBlock instanceof RedstoneChainBlock)) {
                 // Fallback to traditional adjacent block behavior
                 level.scheduleTick(pos, this, 1);
             }
         }
     }
 
-    /**
-     * Called when this block is placed in the world.
-     * <p>
-     * This method is triggered whenever a player places this block or it's created through
-     * other means (like commands, world generation, etc.).
-     * <p>
-     * What happens inside:
-     * 1. Check if we're on the server (!level.isClientSide) - only do logic server-side
-     * 2. Check if the new state is actually different from the old state (!state.is(oldState.getBlock()))
-     * - This prevents unnecessary updates when a block replaces itself (like during updates)
-     * 3. If both conditions are true, schedule a tick in 1 game tick
-     * - This delayed update gives the block time to initialize properly
-     * - Then it will check for redstone power from neighbors and update accordingly
-     * <p>
-     * The delayed tick ensures that when you place a chain block next to powered redstone,
-     * it will properly detect and adopt that power level after placement.
-     *
-     * @param state         The new state of this block
-     * @param level         The world/level the block is in
-     * @param pos           The position where the block was placed
-     * @param oldState      The state that was previously at this position
-     * @param movedByPiston Whether this block was moved by a piston
-     */
-    @Override
-    public void onPlace(BlockState state, Level level, BlockPos pos, BlockState oldState, boolean movedByPiston) {
-        if (!level.isClientSide && !state.is(oldState.getBlock())) {
-            level.scheduleTick(pos, this, 1);
-        }
-    }
-
     /**
      * Called when this block's scheduled tick executes.
      * <p>
-     * This method is triggered when a scheduled tick (from neighborChanged or onPlace) fires.
+     * This method is triggered when a scheduled tick (from neighborChanged) fires.
      * It handles updating the redstone power for blocks using traditional adjacent connections
      * (not wire connections).
      * <p>
@@ -292,21 +261,23 @@ public class RedstoneChainBlock extends Block implements EntityBlock {
         }
 
         // Traditional adjacent block network
-        Set<BlockPos> network = findNetwork(level, pos);
+        LongSet network = findNetwork(level, pos);
         int power = findPower(level, network);
 
         boolean changed = false;
-        for (BlockPos p : network) {
+        BlockPos.MutableBlockPos p = new BlockPos.MutableBlockPos();
+        for (LongIterator it = network.iterator(); it.hasNext(); ) {
+            p.set(it.nextLong());
             BlockState s = level.getBlockState(p);
             if (s.getValue(POWER) != power) {
-                level.setBlock(p, s.setValue(POWER, power), 2);
+                level.setBlock(p.immutable(), s.setValue(POWER, power), 2);
                 changed = true;
             }
         }
 
         if (changed) {
-            for (BlockPos p : network) {
-                level.updateNeighborsAt(p, this);
+            for (LongIterator it = network.iterator(); it.hasNext(); ) {
+                level.updateNeighborsAt(BlockPos.of(it.nextLong()), this);
             }
         }
     }
@@ -319,8 +290,9 @@ public class RedstoneChainBlock extends Block implements EntityBlock {
      * connections, not wire connections.
      * <p>
      * How the BFS algorithm works:
-     * 1. Create an empty Set to track found blocks (prevents duplicates)
-     * 2. Create a Queue with the starting position
+     * 1. Create an empty set to track found blocks (prevents duplicates)
+     * 2. Create a queue with the starting position
+     * (both hold BlockPos.asLong() keys, so the search allocates nothing per block)
      * 3. While there are positions to check:
      *    a. Take a position from the queue
      *    b. Skip if we've already processed it
@@ -334,28 +306,31 @@ public class RedstoneChainBlock extends Block implements EntityBlock {
      *
      * @param level The world/level to search in
      * @param start The starting position to search from
-     * @return A Set of all BlockPos that are part of this connected network
+     * @return The BlockPos.asLong() keys of all blocks that are part of this connected network
      */
-    private Set<BlockPos> findNetwork(Level level, BlockPos start) {
-        Set<BlockPos> network = new HashSet<>();  // Visited blocks
-        Queue<BlockPos> queue = new LinkedList<>(); // Blocks to check
-        queue.add(start);
+    private LongSet findNetwork(Level level, BlockPos start) {
+        LongSet network = new LongOpenHashSet();                 // Visited blocks
+        LongArrayFIFOQueue queue = new LongArrayFIFOQueue();     // Blocks to check
+        BlockPos.MutableBlockPos current = new BlockPos.MutableBlockPos();
+        queue.enqueue(start.asLong());
 
         while (!queue.isEmpty()) {
-            BlockPos current = queue.poll();
+            long key = queue.dequeueLong();
 
             // Skip if already visited
-            if (network.contains(current)) continue;
+            if (network.contains(key)) continue;
 
-            // Skip if not a chain block
+            // Skip if not loaded (never force a chunk load) or not a chain block
+            current.set(key);
+            if (!level.isLoaded(current)) continue;
             if (!(level.getBlockState(current).getBlock() instanceof RedstoneChainBlock)) continue;
 
             // Add to network
-            network.add(current);
+            network.add(key);
 
             // Add all neighbors to queue
             for (Direction dir : Direction.values()) {
-                queue.add(current.relative(dir));
+                queue.enqueue(BlockPos.offset(key, dir));
             }
         }
         return network;
@@ -384,15 +359,19 @@ public class RedstoneChainBlock extends Block implements EntityBlock {
      * This ensures the network adopts the strongest signal from any connected power source.
      *
      * @param level   The world/level to check in
-     * @param network The set of positions that make up this redstone network
+     * @param network The BlockPos.asLong() keys of the positions that make up this redstone network
      * @return The maximum power level (0-15) from any external neighbor
      */
-    private int findPower(Level level, Set<BlockPos> network) {
+    private int findPower(Level level, LongSet network) {
         int max = 0;
-        for (BlockPos p : network) {
+        BlockPos.MutableBlockPos neighbor = new BlockPos.MutableBlockPos();
+        for (LongIterator it = network.iterator(); it.hasNext(); ) {
+            long p = it.nextLong();
             for (Direction d : Direction.values()) {
-                BlockPos neighbor = p.relative(d);
-                if (network.contains(neighbor)) continue;
+                long neighborKey = BlockPos.offset(p, d);
+                if (network.contains(neighborKey)) continue;
+                neighbor.set(neighborKey);
+                if (!level.isLoaded(neighbor)) continue;
                 max = Math.max(max, level.getSignal(neighbor, d.getOpposite()));
                 if (max >= 15) return 15;
             }
@@ -414,6 +393,9 @@ public class RedstoneChainBlock extends Block implements EntityBlock {
      * - Track the current power level
      * - Handle network updates across connected wires
      * <p>
+     * The entity does not tick. Network updates are driven per network by the
+     * RedstoneNetworkScheduler, so there is deliberately no getTicker() override.
+     * <p>
      * This method is called whenever a RedstoneChainBlock is placed in the world.
      *
      * @param pos   The position where the block entity should be created
@@ -426,37 +408,6 @@ public class RedstoneChainBlock extends Block implements EntityBlock {
         return new RedstoneChainEntity(pos, state);
     }
 
-    /**
-     * Provides a "ticker" that runs logic every game tick for the BlockEntity.
-     * <p>
-     * In Minecraft, a "tick" happens 20 times per second (every 0.05 seconds). Some BlockEntities
-     * need to do something every tick - like furnaces checking if they should keep smelting,
-     * or hoppers checking for items to transfer.
-     * <p>
-     * This method tells Minecraft what code to run each tick for our RedstoneChainEntity.
-     * <p>
-     * What happens inside:
-     * 1. Check if the BlockEntityType matches our REDSTONE_CHAIN_ENTITY type
-     * - This ensures we're only ticking the right kind of entity
-     * 2. If it matches, return a reference to RedstoneChainEntity::tick
-     * - This is a method reference that points to the tick() method in RedstoneChainEntity
-     * - That method will be called every game tick (20 times per second)
-     * 3. If it doesn't match, return null (no ticker needed)
-     * <p>
-     * For our redstone chain, the ticker is used to periodically update the network and
-     * synchronize power levels across connected blocks.
-     *
-     * @param level The world/level the block is in
-     * @param state The current state of the block
-     * @param type  The type of block entity
-     * @return A ticker function, or null if no ticking is needed
-     */
-    @Nullable
-    @Override
-    public <T extends BlockEntity> BlockEntityTicker<T> getTicker(Level level, BlockState state, BlockEntityType<T> type) {
-        return type == RedstoneWire.REDSTONE_CHAIN_ENTITY.get() ? RedstoneChainEntity::tick : null;
-    }
-
     /**
      * Called when this block is removed or replaced in the world.
      * <p>
@@ -469,12 +420,12 @@ public class RedstoneChainBlock extends Block implements EntityBlock {
      * (!state.is(newState.getBlock())) - we only clean up if it's truly being removed,
      * not just changing state (like power level)
      * 2. Get the BlockEntity at this position
-     * 3. If it's a RedstoneChainEntity (has wire connections):
-     * a. Loop through all blocks this one is connected to
-     * b. For each connected block, get its BlockEntity
-     * c. If that entity is also a RedstoneChainEntity, tell it to remove its connection
-     * back to us - this prevents "dangling" connections pointing to a deleted block
-     * d. Clear all connections from this entity
+     * 3. If it's a RedstoneChainEntity (has wire connections), detach it from all its peers
+     * in one operation (RedstoneChainEntity.detachFromAllPeers):
+     * a. Every connected chain drops its connection back to us - this prevents "dangling"
+     * connections pointing to a deleted block
+     * b. This block's connections are cleared and it leaves the level's network registry
+     * c. One split check runs over all former peers, however many cables the block had
      * 4. Call the parent class's onRemove to handle standard cleanup
      * <p>
      * This bidirectional cleanup ensures that when a chain block is removed, all other
@@ -491,19 +442,26 @@ public class RedstoneChainBlock extends Block implements EntityBlock {
         if (!state.is(newState.getBlock())) {
             BlockEntity be = level.getBlockEntity(pos);
             if (be instanceof RedstoneChainEntity chain) {
-                // Remove connections from other chains that point to this one
-                for (BlockPos otherPos : new ArrayList<>(chain.getConnections())) {
-                    BlockEntity otherBe = level.getBlockEntity(otherPos);
-                    if (otherBe instanceof RedstoneChainEntity otherChain) {
-                        otherChain.removeConnection(pos);
-                    }
-                }
-                chain.clearConnections();
+                chain.detachFromAllPeers();
             }
         }
         super.onRemove(state, level, pos, newState, movedByPiston);
     }
 
+    /**
+     * In client levels, reports POWER changes (RedstoneChainEvent.PowerChanged), because the
+     * cables this block draws are colored by its power. Called on both sides after the block
+     * state changed; the server has nothing to do here.
+     */
+    @Override
+    public void onBlockStateChange(LevelReader level, BlockPos pos, BlockState oldState, BlockState newState) {
+        if (level.isClientSide() && oldState.is(this) && newState.is(this)
+                && oldState.getValue(POWER) != newState.getValue(POWER)
+                && level.getBlockEntity(pos) instanceof RedstoneChainEntity chain) {
+            NeoForge.EVENT_BUS.post(new RedstoneChainEvent.PowerChanged(chain));
+        }
+    }
+
     /**
      * Tells Minecraft whether this block can provide an analog signal to comparators.
      * <p>
@@ -532,7 +490,8 @@ public class RedstoneChainBlock extends Block implements EntityBlock {
      * read its analog output. The value returned (0-15) will be used by the comparator
      * in its calculations.
      * <p>
-     * We simply return the POWER value from the block's state, which means:
+     * We return the same value as getSignal() (the network's power when the block has a
+     * RedstoneChainEntity, otherwise the POWER value from the block's state), which means:
      * - A powered chain block with power 15 will output signal strength 15 to comparators
      * - An unpowered chain block (power 0) will output signal strength 0
      * - Everything in between maintains its exact power level
@@ -542,10 +501,14 @@ public class RedstoneChainBlock extends Block implements EntityBlock {
      * @param state The current state of the block
      * @param level The world/level the block is in
      * @param pos   The position of the block
-     * @return The analog signal strength (0-15) based on the block's POWER value
+     * @return The analog signal strength (0-15) based on the block's power
      */
     @Override
     public int getAnalogOutputSignal(BlockState state, Level level, BlockPos pos) {
+        BlockEntity be = level.getBlockEntity(pos);
+        if (be instanceof RedstoneChainEntity chain) {
+            return chain.getSignal();
+        }
         return state.getValue(POWER);
     }
 }
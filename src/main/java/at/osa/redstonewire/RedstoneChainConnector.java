@@ -4,6 +4,7 @@ import net.minecraft.ChatFormatting;
 import net.minecraft.core.BlockPos;
 import net.minecraft.nbt.CompoundTag;
 import net.minecraft.network.chat.Component;
+import net.minecraft.server.level.ServerLevel;
 import net.minecraft.world.InteractionHand;
 import net.minecraft.world.InteractionResult;
 import net.minecraft.world.InteractionResultHolder;
@@ -200,6 +201,15 @@ public class RedstoneChainConnector extends Item {
             return ConnectionValidation.invalid();
         }
 
+        // Check that the joined network stays within the size limit (networks are server-side)
+        if (level instanceof ServerLevel serverLevel) {
+            int joinedSize = RedstoneNetworkManager.get(serverLevel).getJoinedSize(startPos, clickedPos);
+            if (joinedSize > Config.getMaxNetworkSize()) {
+                showNetworkTooLargeError(player, joinedSize);
+                return ConnectionValidation.invalid();
+            }
+        }
+
         return ConnectionValidation.valid(distanceSq);
     }
 
@@ -209,20 +219,19 @@ public class RedstoneChainConnector extends Item {
     private void createBidirectionalConnection(Level level, Player player,
                                                BlockPos startPos, BlockPos endPos,
                                                RedstoneChainEntity endChain, ItemStack stack) {
-        // Get the starting chain's block entity
+        // Get the starting chain's block entity (never load a chunk just for that)
+        if (!level.isLoaded(startPos)) {
+            return;
+        }
         BlockEntity startBe = level.getBlockEntity(startPos);
         if (!(startBe instanceof RedstoneChainEntity startChain)) {
             return;
         }
 
-        // Create connections in both directions
+        // Create connections in both directions.
+        // addConnection() saves and syncs each side itself - only if it actually changed
         startChain.addConnection(endPos);
-        startChain.setChanged();
-        level.sendBlockUpdated(startPos, startChain.getBlockState(), startChain.getBlockState(), 3);
-
         endChain.addConnection(startPos);
-        endChain.setChanged();
-        level.sendBlockUpdated(endPos, endChain.getBlockState(), endChain.getBlockState(), 3);
 
         // Show success message
         double distance = Math.sqrt(startPos.distSqr(endPos));
@@ -246,6 +255,15 @@ public class RedstoneChainConnector extends Item {
         }
     }
 
+    private void showNetworkTooLargeError(Player player, int joinedSize) {
+        player.displayClientMessage(
+                Component.translatable("item.redstone_wire.chain_connector.network_too_large",
+                                Config.getMaxNetworkSize(), joinedSize)
+                        .withStyle(ChatFormatting.RED),
+                true
+        );
+    }
+
     private void showDistanceError(Player player, double distanceSq) {
         int actualDistance = (int) Math.sqrt(distanceSq);
         player.displayClientMessage(
@@ -1,5 +1,8 @@
 package at.osa.redstonewire;
 
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongList;
 import net.minecraft.core.BlockPos;
 import net.minecraft.core.Direction;
 import net.minecraft.core.HolderLookup;
@@ -7,11 +10,11 @@ import net.minecraft.nbt.CompoundTag;
 import net.minecraft.nbt.ListTag;
 import net.minecraft.nbt.Tag;
 import net.minecraft.network.protocol.game.ClientboundBlockEntityDataPacket;
-import net.minecraft.world.level.Level;
-import net.minecraft.world.level.block.Block;
-import net.minecraft.world.level.block.RedStoneWireBlock;
+import net.minecraft.server.level.ServerLevel;
 import net.minecraft.world.level.block.entity.BlockEntity;
 import net.minecraft.world.level.block.state.BlockState;
+import net.neoforged.neoforge.common.NeoForge;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
 
@@ -20,8 +23,8 @@ import java.util.*;
  * <p>
  * This entity handles:
  * - Storing connections to other chain blocks (up to 3 connections per block)
- * - Managing a network of connected chain blocks
- * - Calculating and distributing redstone power across the network
+ * - Registering with the level's network registry (RedstoneNetworkManager)
+ * - Requesting network updates when something around it changes
  * - Syncing data between server and client for rendering
  * <p>
  * Unlike traditional adjacent-only connections, this entity allows chain blocks to connect
@@ -31,49 +34,33 @@ public class RedstoneChainEntity extends BlockEntity {
 
     // ===== Connection Management =====
     /**
-     * Direct connections from this block to other chain blocks.
+     * Direct connections from this block to other chain blocks, as BlockPos.asLong() keys.
      * Maximum of MAX_CONNECTIONS per block.
      */
-    private final List<BlockPos> connections = new ArrayList<>();
+    private final LongArrayList connections = new LongArrayList();
 
-    // ===== Network Management =====
-    /**
-     * Cached set of all blocks in this network (includes this block and all transitively connected blocks).
-     * Rebuilt when networkDirty is true.
-     */
-    private final Set<BlockPos> network = new HashSet<>();
-
-    /**
-     * Flag indicating the network cache is stale and needs rebuilding.
-     * Set to true when connections change or network structure is invalidated.
-     */
-    private boolean networkDirty = true;
-
-    /**
-     * Counts ticks since the last periodic update.
-     * Reset to 0 when UPDATE_INTERVAL is reached.
-     */
-    private int ticksSinceLastUpdate = 0;
-
-    // ===== Feedback Loop Protection =====
     /**
-     * Prevents recursive update calls that could cause infinite loops.
-     * Set to true during updateSignalInNetwork(), cleared in finally block.
+     * Read-only BlockPos view of the connections for the renderer and the connector item.
+     * Rebuilt only when the connections change, so reading it every frame allocates nothing.
      */
-    private boolean isUpdating = false;
+    private List<BlockPos> connectionView = List.of();
 
-    // ===== Signal Management =====
+    // ===== Network Management =====
     /**
-     * Number of ticks that have passed with no external power input.
-     * Used to delay signal loss and prevent flickering.
+     * Handle into the level's RedstoneNetworkManager for the network this block belongs to.
+     * <p>
+     * The network itself (its members, its size) lives in the manager - this block only
+     * keeps the id it was given. The handle may belong to a network that was since merged
+     * into a larger one; the manager resolves it to the current network.
+     * 0 means "not registered" (client side, or before onLoad()).
      */
-    private int ticksWithoutInput = 0;
+    private int networkId = 0;
 
     /**
-     * The last known input signal strength from external sources.
-     * Cached to maintain signal briefly after input is lost.
+     * Set when the connections were read from the old verbose "Connections" list, so the
+     * chunk gets re-saved in the compact format.
      */
-    private int cachedInputSignal = 0;
+    private boolean loadedLegacyFormat = false;
 
     /**
      * Constructor for the RedstoneChainEntity.
@@ -103,9 +90,29 @@ public class RedstoneChainEntity extends BlockEntity {
      * @return A list of BlockPos representing connected chain blocks
      */
     public List<BlockPos> getConnections() {
+        return connectionView;
+    }
+
+    /**
+     * Same as getConnections(), as BlockPos.asLong() keys (used by network traversal).
+     * This is the live list - callers must not modify it.
+     */
+    LongList getConnectionKeys() {
         return connections;
     }
 
+    private void onConnectionsChanged() {
+        List<BlockPos> view = new ArrayList<>(connections.size());
+        for (int i = 0; i < connections.size(); i++) {
+            view.add(BlockPos.of(connections.getLong(i)));
+        }
+        connectionView = Collections.unmodifiableList(view);
+        if (level != null && level.isClientSide) {
+            // The cables drawn from here may have changed
+            NeoForge.EVENT_BUS.post(new RedstoneChainEvent.ConnectionsChanged(this));
+        }
+    }
+
     /**
      * Adds a connection from this chain block to another chain block.
      * <p>
@@ -119,7 +126,6 @@ public class RedstoneChainEntity extends BlockEntity {
      * 3. If target is too far away (>24 blocks), do nothing (prevents unrealistic distances)
      * <p>
      * After adding the connection:
-     * - Marks the network as dirty (needs recalculation)
      * - Saves the change to disk
      * - Syncs to the client so the cable renders
      * - Merges networks if the target is part of another network
@@ -133,51 +139,70 @@ public class RedstoneChainEntity extends BlockEntity {
      * - Rejects duplicate connections
      * - Rejects if already at max connections
      * - Rejects if target is too far away
+     * - Rejects if the joined network would exceed Config.MAX_NETWORK_SIZE
      * <p>
      * After adding connection:
-     * - Marks network as dirty (needs rebuild)
      * - Saves to disk and syncs to client
-     * - Merges networks if target is part of another network
+     * - Stores the edge in the level's RedstoneNetworkManager, which merges the networks
+     *   (constant-time union). Adding the target's half afterwards finds the edge already stored
      *
      * @param target Position of the chain block to connect to
+     * @return true if the connection was added, false if it was rejected (nothing changed)
      */
-    public void addConnection(BlockPos target) {
+    public boolean addConnection(BlockPos target) {
         // Validation: Check if already connected
         if (isAlreadyConnectedTo(target)) {
-            return;
+            return false;
         }
 
         // Validation: Check connection limit
         if (isAtMaxConnections()) {
-            return;
+            return false;
         }
 
         // Validation: Check distance
         if (isTooFarAway(target)) {
-            return;
+            return false;
+        }
+
+        // Validation: Check that the joined network stays within Config.MAX_NETWORK_SIZE
+        if (wouldExceedNetworkSize(target)) {
+            return false;
         }
 
         // Add the connection
-        connections.add(target);
+        connections.add(target.asLong());
+        onConnectionsChanged();
 
         // Update state
-        markNetworkDirty();
         saveAndSync();
 
-        // Merge networks if target is part of another network
-        mergeNetworkWithTarget(target);
+        // Store the edge and merge networks if target is part of another network
+        RedstoneNetworkManager manager = getNetworkManager();
+        if (manager != null) {
+            manager.connect(worldPosition, target);
+        }
+        return true;
     }
 
     private boolean isAlreadyConnectedTo(BlockPos target) {
         // we treat the entire network as a single entity for connection purposes
         // if it is connected to any block in the target's network, it is connected to all
-        return connections.contains(target);
+        return connections.contains(target.asLong());
     }
 
     private boolean isAtMaxConnections() {
         return connections.size() >= Config.MAX_CONNECTIONS_PER_CHAIN.getAsInt();
     }
 
+    /**
+     * Checks if connecting to the target would join a network larger than Config.MAX_NETWORK_SIZE.
+     */
+    private boolean wouldExceedNetworkSize(BlockPos target) {
+        RedstoneNetworkManager manager = getNetworkManager();
+        return manager != null && manager.getJoinedSize(worldPosition, target) > Config.getMaxNetworkSize();
+    }
+
     /**
      * Checks if a target position is too far away to create a connection.
      * <p>
@@ -258,149 +283,139 @@ public class RedstoneChainEntity extends BlockEntity {
         return worldPosition.distSqr(target) > maxDistSqr;
     }
 
-    private void markNetworkDirty() {
-        networkDirty = true;
-    }
-
+    /**
+     * Marks the connections as changed: saved with the chunk, and re-sent to clients.
+     * <p>
+     * Only call this when the connections really changed. They are the only thing this
+     * block entity saves - network membership and power are level data kept by the
+     * RedstoneNetworkManager, so network changes never mark chunks for saving.
+     */
     private void saveAndSync() {
-        setChanged();      // Marks for saving to disk
+        markConnectionsUnsaved();
         syncToClient();    // Sends update to client for rendering
     }
 
-    private void mergeNetworkWithTarget(BlockPos target) {
-        if (level == null) {
-            return;
-        }
-
-        BlockEntity be = level.getBlockEntity(target);
-        if (be instanceof RedstoneChainEntity other) {
-            mergeWithOtherNetwork(other);
+    /**
+     * setChanged() for the connections, counted in RedstoneWireMetrics.CHUNKS_MARKED_UNSAVED.
+     */
+    private void markConnectionsUnsaved() {
+        if (level != null) {
+            RedstoneWireMetrics.recordChunkWrite(level, worldPosition);
         }
+        setChanged();      // Marks for saving to disk
     }
 
     /**
-     * Removes a connection from this chain block to another chain block.
+     * Removes the cable between this chain block and another chain block.
      * <p>
-     * This is called when a cable connection is broken, either manually by the player
-     * or automatically when a block is removed.
+     * This is called when a cable connection is broken by the player or by code.
      * <p>
      * What happens when a connection is removed:
      * 1. The target position is removed from the connections list
-     * 2. The network is marked as dirty (needs recalculation)
-     * 3. Changes are saved to disk
-     * 4. The client is synced so the cable disappears
-     * 5. Both this block's network and the target's network are invalidated
-     * - This forces both networks to rebuild, as they may have been split
-     * <p>
-     * Note: This only removes the connection from THIS block to the target.
-     * If there was a bidirectional connection, the target block also needs to
-     * remove its connection back to this block.
+     * 2. Changes are saved to disk and the client is synced so the cable disappears
+     * 3. The edge is removed from the level's RedstoneNetworkManager, which checks at the
+     * end of the tick whether the network split
+     * 4. If the target is loaded, its half of the cable is removed the same way. A target in
+     * an unloaded chunk drops its half when it loads (the manager's edge list wins)
      *
      * @param target The position of the chain block to disconnect from
      */
     public void removeConnection(BlockPos target) {
-        if (connections.remove(target)) {
-            networkDirty = true;
-            setChanged();
-            syncToClient();
-            invalidateNetwork();
-            if (level != null) {
-                BlockEntity be = level.getBlockEntity(target);
-                if (be instanceof RedstoneChainEntity cable) {
-                    cable.invalidateNetwork();
-                }
-            }
+        if (connections.rem(target.asLong())) {
+            onConnectionsChanged();
+            saveAndSync();
+        }
+
+        RedstoneNetworkManager manager = getNetworkManager();
+        if (manager == null) return;
+
+        manager.disconnect(worldPosition, target);
+        if (level.isLoaded(target) && level.getBlockEntity(target) instanceof RedstoneChainEntity other
+                && other.connections.rem(worldPosition.asLong())) {
+            other.onConnectionsChanged();
+            other.saveAndSync();
         }
     }
 
     /**
-     * Marks this chain block's entire network as needing recalculation.
-     * <p>
-     * This method uses a breadth-first search to find ALL chain blocks connected to
-     * this one (directly or indirectly through other chain blocks), and marks each
-     * one's network as "dirty" (needing rebuild).
-     * <p>
-     * This is necessary when:
-     * - A connection is removed (network may have split into two separate networks)
-     * - A block is removed from the network
-     * - The network structure changes in any way
-     * <p>
-     * How it works:
-     * 1. Start with this block's position
-     * 2. Create a "visited" set to track which blocks we've already processed
-     * 3. Use a queue for breadth-first traversal
-     * 4. For each block in the queue:
-     * a. Skip if already visited
-     * b. Mark it as visited
-     * c. If it's a RedstoneChainEntity:
-     * - Set its networkDirty flag to true
-     * - Save the change
-     * - Add all its connections to the queue for processing
-     * 5. Continue until all reachable blocks are processed
-     * <p>
-     * This ensures that when you break a connection, both resulting networks
-     * properly rebuild themselves.
+     * Points this block at a new network id (a piece split off from its old network).
      */
-    public void invalidateNetwork() {
-        if (level == null) return;
-
-        Set<BlockPos> visited = new HashSet<>();
-        Queue<BlockPos> queue = new LinkedList<>();
-        queue.add(this.worldPosition);
-
-        while (!queue.isEmpty()) {
-            BlockPos current = queue.poll();
-            if (!visited.add(current)) continue;
-
-            BlockEntity be = level.getBlockEntity(current);
-            if (be instanceof RedstoneChainEntity chain) {
-                chain.networkDirty = true;
-                chain.setChanged();
-
-                for (BlockPos neighbor : chain.getConnectedChains()) {
-                    if (!visited.contains(neighbor)) {
-                        queue.add(neighbor);
-                    }
+    void setNetworkHandle(int networkId) {
+        this.networkId = networkId;
+    }
+
+    /**
+     * Takes this chain block out of the world's cable graph in one operation. Called when
+     * the block is removed (see RedstoneChainBlock.onRemove).
+     * <p>
+     * What happens:
+     * 1. Every loaded peer drops its connection back to this block (one save + sync per peer).
+     * The peers come from the manager's edge list, so peers this block's chunk data no longer
+     * knows about are included. Peers in unloaded chunks drop theirs when they load
+     * 2. This block's own connections are cleared without a sync - the block is going away
+     * 3. The block is unregistered from the RedstoneNetworkManager, which removes its edges and
+     * queues all former peers for the split check at the end of the tick. There the peers of
+     * every block removed in the same tick (a /fill, an explosion) are checked together, once
+     * per network
+     * <p>
+     * Going through removeConnection() per peer and clearConnections() afterwards would save,
+     * sync and re-check each cable separately; for a hub with many cables this does the
+     * network work once.
+     */
+    public void detachFromAllPeers() {
+        long self = worldPosition.asLong();
+        RedstoneNetworkManager manager = getNetworkManager();
+        LongArrayList peers = new LongArrayList(connections);
+        if (manager != null) {
+            LongList edges = manager.getEdges(worldPosition);
+            for (int i = 0; i < edges.size(); i++) {
+                if (!peers.contains(edges.getLong(i))) {
+                    peers.add(edges.getLong(i));
                 }
             }
         }
+        connections.clear();
+        onConnectionsChanged();
+
+        if (level != null) {
+            BlockPos.MutableBlockPos cursor = new BlockPos.MutableBlockPos();
+            for (int i = 0; i < peers.size(); i++) {
+                cursor.set(peers.getLong(i));
+                if (level.isLoaded(cursor) && level.getBlockEntity(cursor) instanceof RedstoneChainEntity other
+                        && other.connections.rem(self)) {
+                    other.onConnectionsChanged();
+                    other.saveAndSync();
+                }
+            }
+        }
+
+        if (manager == null) return;
+
+        manager.unregister(worldPosition);
+        networkId = 0;
     }
 
     /**
      * Removes all connections from this chain block.
      * <p>
-     * This is typically called when the block is being removed from the world.
-     * It ensures clean cleanup of all cable connections.
+     * This cuts the block loose from the cable graph while it stays in the world (removing
+     * a block goes through detachFromAllPeers() instead).
      * <p>
      * What happens:
      * 1. Make a copy of the connections list (to avoid modification during iteration)
-     * 2. Clear the connections list
-     * 3. Mark the network as dirty
-     * 4. Save changes to disk
-     * 5. Sync to client (cables disappear)
-     * 6. Invalidate this block's network
-     * 7. For each previously connected block:
-     * - Invalidate its network too
-     * - This ensures all affected networks rebuild properly
-     * <p>
-     * This is important for cleanup because when a block is removed, all blocks
-     * that were connected to it need to recalculate their networks.
+     * 2. Remove each cable with removeConnection() - both halves, and the stored edge
+     * 3. The split check for all previously connected blocks runs once, at the end of the tick
+     * - Pieces that are no longer connected to each other get their own network ids
+     * <p>
+     * This is important for cleanup because the blocks that were connected through this one
+     * may no longer be connected to each other.
      */
     public void clearConnections() {
-        List<BlockPos> oldConnections = new ArrayList<>(connections);
-        connections.clear();
-        networkDirty = true;
-        setChanged();
-        syncToClient();
-        invalidateNetwork();
+        if (connections.isEmpty()) return;
 
-        if (level != null) {
-            for (BlockPos target : oldConnections) {
-                BlockEntity be = level.getBlockEntity(target);
-                if (be instanceof RedstoneChainEntity chain) {
-                    chain.invalidateNetwork();
-                }
-            }
+        List<BlockPos> oldConnections = connectionView;
+        for (BlockPos target : oldConnections) {
+            removeConnection(target);
         }
     }
 
@@ -408,6 +423,9 @@ public class RedstoneChainEntity extends BlockEntity {
      * Returns a list of positions that are valid chain block connections.
      * <p>
      * This method filters the connections list to only include positions that:
+     * 0. Are in a loaded chunk - connections into unloaded chunks are "dormant": they stay
+     * in the connections list, but are never read (reading them would load the chunk on
+     * the main thread)
      * 1. Actually have a block entity at that location
      * 2. That block entity is a RedstoneChainEntity
      * 3. The position hasn't already been added to the result (prevents duplicates)
@@ -417,8 +435,7 @@ public class RedstoneChainEntity extends BlockEntity {
      * for network traversal where you only want to follow valid connections.
      * <p>
      * Use cases:
-     * - Network building (rebuildNetwork)
-     * - Network invalidation (invalidateNetwork)
+     * - Code that wants the live neighbors of a chain without touching unloaded chunks
      * - Any algorithm that needs to traverse the network graph
      *
      * @return A list of BlockPos for valid chain block connections
@@ -427,7 +444,8 @@ public class RedstoneChainEntity extends BlockEntity {
         List<BlockPos> result = new ArrayList<>();
         if (level == null) return result;
 
-        for (BlockPos pos : connections) {
+        for (BlockPos pos : connectionView) {
+            if (!level.isLoaded(pos)) continue;
             BlockEntity be = level.getBlockEntity(pos);
             if (be instanceof RedstoneChainEntity && !result.contains(pos)) {
                 result.add(pos);
@@ -437,396 +455,86 @@ public class RedstoneChainEntity extends BlockEntity {
     }
 
     /**
-     * Rebuilds the network by discovering all connected chain blocks.
-     * <p>
-     * This method uses a breadth-first search (BFS) algorithm to find every chain block
-     * that is reachable from this one through connections. The result is stored in the
-     * 'network' set, which is used for power distribution.
-     * <p>
-     * How the algorithm works:
-     * 1. Create a 'visited' set to track blocks we've already processed
-     * 2. Create a queue and add this block's position as the starting point
-     * 3. While the queue has positions to process:
-     * a. Take a position from the front of the queue
-     * b. If we've already visited this position, skip it
-     * c. Mark this position as visited
-     * d. If there's a RedstoneChainEntity at this position:
-     * - Get all its valid chain connections
-     * - Add any unvisited connections to the queue
-     * 4. Once the queue is empty, we've found all reachable blocks
-     * 5. Clear the current network set and add all visited positions
-     * <p>
-     * The result is a complete graph of all interconnected chain blocks.
-     * This network is then used to:
-     * - Find external power sources (computeNetworkInputPower)
-     * - Distribute power evenly across all blocks (applySignalToNetwork)
-     */
-    public void rebuildNetwork() {
-        if (level == null) return;
-
-        Set<BlockPos> visited = new HashSet<>();
-        Queue<BlockPos> queue = new LinkedList<>();
-        queue.add(worldPosition);
-
-        while (!queue.isEmpty()) {
-            BlockPos current = queue.poll();
-            if (!visited.add(current)) continue;
-
-            BlockEntity be = level.getBlockEntity(current);
-            if (be instanceof RedstoneChainEntity chain) {
-                for (BlockPos neighbor : chain.getConnectedChains()) {
-                    if (!visited.contains(neighbor)) {
-                        queue.add(neighbor);
-                    }
-                }
-            }
-        }
-
-        network.clear();
-        network.addAll(visited);
-    }
-
-    /**
-     * Computes the maximum redstone input power for the entire network.
-     * <p>
-     * This method scans every block in the network and checks all their neighbors
-     * to find the strongest redstone signal being input from outside the network.
-     * <p>
-     * How it works:
-     * 1. Start with maxInput = 0
-     * 2. For each block position in the network:
-     *    a. Check all 6 directions (up, down, north, south, east, west)
-     *    b. Get the neighbor block in that direction
-     *    c. Skip if the neighbor is part of our network (RedstoneChainBlock)
-     *    d. Skip if the neighbor is vanilla redstone wire (we don't want to create loops)
-     *    e. Ask the neighbor for its redstone signal strength
-     *       - Uses level.getSignal() with opposite direction (due to Minecraft's API quirk)
-     *    f. If the signal is greater than 0, update maxInput to the higher value
-     * 3. Return the maximum input power found
-     * <p>
-     * This allows the network to receive power from:
-     * - Redstone torches
-     * - Levers, buttons, pressure plates
-     * - Repeaters and comparators
-     * - Powered blocks (blocks activated by redstone)
-     * - Any other redstone power source
-     * <p>
-     * The strongest signal found anywhere in the network becomes the network's power level.
-     *
-     * @return The maximum redstone power (0-15) from any external source
-     */
-    /**
-     * Computes the maximum redstone input power for the entire network.
+     * Returns the id of the network this chain block belongs to.
      * <p>
-     * Scans all blocks in the network and checks all their neighbors for redstone signals.
-     * Returns the strongest signal found from any external source (non-network block).
-     * <p>
-     * Ignores:
-     * - Other chain blocks in the network (to avoid counting internal signals)
-     * - Vanilla redstone wire (to prevent feedback loops)
-     *
-     * @return Maximum power level (0-15) from any external redstone source
-     */
-    private int computeNetworkInputPower() {
-        if (level == null) return 0;
-
-        int maxInput = 0;
-
-        // Check every block in the network for external power
-        for (BlockPos pos : network) {
-            int powerAtBlock = findMaxPowerAroundBlock(pos);
-            maxInput = Math.max(maxInput, powerAtBlock);
-        }
-
-        return maxInput;
-    }
-
-    /**
-     * Finds the maximum redstone power from neighbors of a single block.
-     * Checks all 6 directions (up, down, north, south, east, west).
+     * Resolves the stored handle through the RedstoneNetworkManager, so the result is
+     * always the current network even after merges.
      *
-     * @param pos Position to check around
-     * @return Maximum power from neighbors (0-15)
+     * @return The network id, or 0 if this block is not registered (e.g. on the client)
      */
-    private int findMaxPowerAroundBlock(BlockPos pos) {
-        int maxPower = 0;
-
-        // Check all 6 directions
-        for (Direction dir : Direction.values()) {
-            int powerFromDirection = getPowerFromDirection(pos, dir);
-            maxPower = Math.max(maxPower, powerFromDirection);
-        }
-
-        return maxPower;
+    public int getNetworkId() {
+        RedstoneNetworkManager manager = getNetworkManager();
+        return manager == null || networkId == 0 ? networkId : manager.find(networkId);
     }
 
     /**
-     * Gets redstone power from a specific direction of a block.
-     * Returns 0 if the neighbor should be ignored (chain block or vanilla redstone).
+     * Returns the network registry of this block's level.
      *
-     * @param pos The block position we're checking from
-     * @param dir The direction to check
-     * @return Power level from that direction (0-15)
+     * @return The manager, or null on the client (networks are server-side only)
      */
-    private int getPowerFromDirection(BlockPos pos, Direction dir) {
-        BlockPos neighborPos = pos.relative(dir);
-        BlockState neighborState = level.getBlockState(neighborPos);
-        Block block = neighborState.getBlock();
-
-        // Skip other chain blocks in network (internal connections)
-        if (block instanceof RedstoneChainBlock) {
-            return 0;
-        }
-
-        // Skip vanilla redstone wire (prevents feedback loops)
-        if (block instanceof RedStoneWireBlock) {
-            return 0;
-        }
-
-        // Get signal from this neighbor
-        // Note: dir.getOpposite() is used due to Minecraft's backwards direction API
-        return level.getSignal(neighborPos, dir.getOpposite());
+    @Nullable
+    private RedstoneNetworkManager getNetworkManager() {
+        return level instanceof ServerLevel serverLevel ? RedstoneNetworkManager.get(serverLevel) : null;
     }
 
     /**
-     * Applies a redstone signal strength to all blocks in the network.
-     * <p>
-     * This method updates the POWER property of every RedstoneChainBlock in the network
-     * to the specified signal strength. This is how power gets distributed across
-     * connected chain blocks.
-     * <p>
-     * How it works:
-     * 1. For each position in the network:
-     * a. Get the current block state at that position
-     * b. Verify it's actually a RedstoneChainBlock (safety check)
-     * c. Get the current POWER value from the block state
-     * d. If the current power is different from the target signal:
-     * - Create a new block state with the updated POWER value
-     * - Set the block in the world (flag 3 = update neighbors & send to client)
-     * 2. Only update blocks that actually need changing (performance optimization)
+     * Updates the redstone signal for the entire network this block belongs to.
      * <p>
-     * The flag value of 3 means:
-     * - Bit 0 (1): Send the block update to clients (they see the visual change)
-     * - Bit 1 (2): Update neighboring blocks (notifies redstone components)
+     * The actual work (finding the strongest input, applying it to every member) is done
+     * once per network by RedstoneNetwork.update(), driven by the RedstoneNetworkScheduler.
      * <p>
-     * This ensures that:
-     * - All chain blocks in the network have the same power level
-     * - Visual feedback (block state) is synchronized across server and client
-     * - Neighboring redstone components are notified of power changes
-     *
-     * @param signal The redstone signal strength (0-15) to apply to all network blocks
-     */
-    private void applySignalToNetwork(int signal) {
-        if (level == null) return;
-
-        for (BlockPos pos : network) {
-            BlockState state = level.getBlockState(pos);
-            if (state.getBlock() instanceof RedstoneChainBlock) {
-                int old = state.getValue(RedstoneChainBlock.POWER);
-                if (old != signal) {
-                    level.setBlock(pos, state.setValue(RedstoneChainBlock.POWER, signal), 3);
-                }
-            }
-        }
-    }
-
-    /**
-     * Updates the redstone signal for the entire network.
-     * <p>
-     * This is the main method that orchestrates network power calculation and distribution.
-     * It's called when:
-     * - A neighbor block changes (via neighborChanged in RedstoneChainBlock)
-     * - The network structure changes (connections added/removed)
-     * - Periodic tick updates
-     * <p>
-     * The method includes several important features:
-     * <p>
-     * FEEDBACK LOOP PROTECTION:
-     * - Uses the 'isUpdating' flag to prevent recursive calls
-     * - If already updating, exits immediately
-     * - Sets flag at start, clears in finally block (ensures cleanup even if exception occurs)
-     * <p>
-     * NETWORK REBUILD:
-     * - Checks if network is dirty (needs rebuild)
-     * - Calls rebuildNetwork() to discover all connected blocks
-     * - Clears the dirty flag once rebuild is complete
-     * <p>
-     * SIGNAL CALCULATION:
-     * - Calls computeNetworkInputPower() to find the strongest input signal
-     * - If input > 0: Updates cached signal and resets the "no input" counter
-     * - If input = 0: Increments the "no input" counter
-     *   - After SIGNAL_LOSS_DELAY ticks without input, clears the cached signal
-     *   - This prevents instant signal loss, providing stability
-     * <p>
-     * SIGNAL DISTRIBUTION:
-     * - Calls applySignalToNetwork() with the cached signal
-     * - All blocks in the network get updated to the same power level
-     * <p>
-     * This method ensures smooth, stable power distribution across the network
-     * while preventing infinite loops and signal flickering.
-     */
-    /**
-     * Updates the redstone signal for the entire network.
-     * <p>
-     * This is the main coordination method that:
-     * 1. Prevents feedback loops using isUpdating flag
-     * 2. Rebuilds network if structure changed
-     * 3. Checks for external power input
-     * 4. Updates cached signal with delay to prevent flickering
-     * 5. Distributes signal to all blocks in network
+     * By default this only marks the network dirty: however many of its blocks see neighbor
+     * changes during a tick (piston doors, clocks), the network is evaluated once at the end
+     * of that tick. With Config.IMMEDIATE_NEIGHBOR_RESPONSE the network is evaluated right away.
      * <p>
      * Called by:
-     * - neighborChanged() when adjacent blocks change
-     * - Periodic ticker every UPDATE_INTERVAL ticks
-     * - When connections are added/removed
+     * - onNeighborChanged() when an input port's signal changed
+     * <p>
+     * Periodic re-checks and topology changes no longer go through the block entity at all:
+     * the scheduler handles them per network at the end of the level tick.
      */
     public void updateSignalInNetwork() {
-        // Prevent infinite recursion (feedback loop protection)
-        if (isUpdating) {
-            return;
-        }
-
-        isUpdating = true;
-        try {
-            // Step 1: Ensure network is up-to-date
-            ensureNetworkIsBuilt();
-
-            // Step 2: Check for external power input
-            int currentInput = computeNetworkInputPower();
-
-            // Step 3: Update cached signal with delay (prevents flickering)
-            updateCachedSignal(currentInput);
+        RedstoneNetworkManager manager = getNetworkManager();
+        if (manager == null) return;
 
-            // Step 4: Distribute the signal to all blocks
-            applySignalToNetwork(cachedInputSignal);
-
-        } finally {
-            // Always clear the updating flag, even if an exception occurs
-            isUpdating = false;
-        }
-    }
-
-    /**
-     * Rebuilds the network if it's marked as dirty.
-     * After rebuilding, clears the dirty flag.
-     */
-    private void ensureNetworkIsBuilt() {
-        if (networkDirty) {
-            rebuildNetwork();
-            networkDirty = false;
-        }
-    }
-
-    /**
-     * Updates the cached signal based on current input.
-     * Implements a delay before clearing signal to prevent flickering.
-     *
-     * @param currentInput The current power level from external sources
-     */
-    private void updateCachedSignal(int currentInput) {
-        if (currentInput > 0) {
-            // Power detected - update cache immediately and reset delay counter
-            cachedInputSignal = currentInput;
-            ticksWithoutInput = 0;
+        if (Config.isImmediateNeighborResponse()) {
+            manager.getScheduler().evaluateNow((ServerLevel) level, networkId);
         } else {
-            // No power - increment delay counter
-            ticksWithoutInput++;
-
-            // Only clear signal after delay period has passed
-            if (ticksWithoutInput >= Config.SIGNAL_LOSS_DELAY_TICKS.getAsInt()) {
-                cachedInputSignal = 0;
-            }
-            // Otherwise keep the cached signal (prevents flickering)
+            manager.getScheduler().markDirty(networkId);
         }
     }
 
     /**
-     * Merges this network with another network.
-     * <p>
-     * This is called when a new connection is added between two chain blocks that
-     * may already be part of different networks. Instead of rebuilding both networks
-     * from scratch, this efficiently merges them.
-     * <p>
-     * How the merge works:
-     * 1. Get both network sets (this block's and the other block's)
-     * 2. Determine which network is larger
-     * 3. Start with the larger network as the base (optimization)
-     * 4. Add all blocks from the smaller network to it
-     * 5. For every block in the merged set:
-     * a. Get its block entity
-     * b. If it's a RedstoneChainEntity:
-     * - Replace its network set with the merged set
-     * - Mark it as NOT dirty (network is now up-to-date)
-     * <p>
-     * Why merge instead of rebuild?
-     * - More efficient: O(n+m) instead of potentially O((n+m)²) for BFS rebuild
-     * - Preserves existing network information
-     * - Prevents unnecessary recalculation
-     * <p>
-     * After the merge, all blocks in both original networks now share the same
-     * network set and will calculate/distribute power as one unified network.
+     * Reacts to a change next to this chain block.
+     * <p>
+     * Only the face pointing at the changed neighbor is re-read and stored in the network's
+     * input port index. The network is only re-evaluated if that port's signal changed, so
+     * block updates that don't affect the input (e.g. a lamp we power turning on, or another
+     * chain block changing its POWER) cost a single block read.
      *
-     * @param other The other RedstoneChainEntity whose network should be merged with this one
-     */
-    private void mergeWithOtherNetwork(RedstoneChainEntity other) {
-        if (level == null) return;
-
-        Set<BlockPos> network1 = new HashSet<>(this.network);
-        Set<BlockPos> network2 = new HashSet<>(other.network);
-
-        Set<BlockPos> larger = network1.size() >= network2.size() ? network1 : network2;
-        Set<BlockPos> smaller = network1.size() < network2.size() ? network1 : network2;
-
-        Set<BlockPos> merged = new HashSet<>(larger);
-        merged.addAll(smaller);
-
-        for (BlockPos pos : merged) {
-            BlockEntity be = level.getBlockEntity(pos);
-            if (be instanceof RedstoneChainEntity chain) {
-                chain.network.clear();
-                chain.network.addAll(merged);
-                chain.networkDirty = false;
+     * @param neighborPos Position of the neighbor that changed
+     */
+    public void onNeighborChanged(BlockPos neighborPos) {
+        RedstoneNetworkManager manager = getNetworkManager();
+        if (manager == null) return;
+
+        ServerLevel serverLevel = (ServerLevel) level;
+        boolean changed = false;
+        boolean adjacent = false;
+        for (Direction face : Direction.values()) {
+            if (worldPosition.relative(face).equals(neighborPos)) {
+                changed = manager.refreshPort(serverLevel, worldPosition, face);
+                adjacent = true;
+                break;
             }
         }
-    }
+        if (!adjacent) {
+            // Not a direct neighbor - we don't know which face is affected, so read all of them
+            changed = manager.refreshPorts(serverLevel, worldPosition);
+        }
 
-    /**
-     * Called every game tick (20 times per second) for this block entity.
-     * <p>
-     * This is the ticker method that Minecraft calls automatically for block entities
-     * that have registered a ticker (see RedstoneChainBlock.getTicker).
-     * <p>
-     * What happens every tick:
-     * 1. First, validate this is actually a RedstoneChainEntity (type safety)
-     * 2. If on client side, return immediately (all logic is server-side only)
-     * 3. Increment the tick counter (ticksSinceLastUpdate)
-     * 4. When the counter reaches UPDATE_INTERVAL (20 ticks = 1 second):
-     * - Reset the counter to 0
-     * - Call updateSignalInNetwork() to recalculate and distribute power
-     * <p>
-     * Why periodic updates instead of event-driven only?
-     * - Catches edge cases where neighbor updates might be missed
-     * - Ensures networks stay synchronized even if some updates are lost
-     * - Provides a "heartbeat" for the network that can detect and fix issues
-     * - Once per second is frequent enough for responsiveness but light on performance
-     * - If someone breaks an intermittent connection, the periodic update will detect it and fix it (turn off power)
-     * <p>
-     * This combines with event-driven updates (neighborChanged) to create a robust
-     * system that responds quickly to changes but also self-corrects periodically.
-     *
-     * @param level The world/level containing this block entity
-     * @param pos   The position of this block entity
-     * @param state The block state of this block entity
-     * @param be    The block entity itself (type-checked to RedstoneChainEntity)
-     */
-    public static <T extends BlockEntity> void tick(Level level, BlockPos pos, BlockState state, T be) {
-        if (!(be instanceof RedstoneChainEntity chain)) return;
-        if (level.isClientSide) return;
-
-        chain.ticksSinceLastUpdate++;
-        if (chain.ticksSinceLastUpdate >= Config.UPDATE_INTERVAL_TICKS.getAsInt()) {
-            chain.ticksSinceLastUpdate = 0;
-            chain.updateSignalInNetwork();
+        if (changed) {
+            updateSignalInNetwork();
         }
     }
 
@@ -837,6 +545,9 @@ public class RedstoneChainEntity extends BlockEntity {
      * It's used by RedstoneChainBlock.getSignal() to provide the signal strength
      * to neighboring blocks.
      * <p>
+     * In network power mode (Config.NETWORK_POWER_MODE) only blocks that touch other blocks
+     * have an up-to-date POWER, so on the server the value is read from the network instead.
+     * <p>
      * The value returned is between 0-15:
      * - 0 means no power (unpowered)
      * - 15 means maximum power (fully powered)
@@ -845,6 +556,13 @@ public class RedstoneChainEntity extends BlockEntity {
      * @return The redstone power level (0-15) of this block
      */
     public int getSignal() {
+        if (Config.isNetworkPowerMode()) {
+            RedstoneNetworkManager manager = getNetworkManager();
+            RedstoneNetwork network = manager == null || networkId == 0 ? null : manager.getNetwork(networkId);
+            if (network != null) {
+                return network.getCachedInputSignal();
+            }
+        }
         return getBlockState().getValue(RedstoneChainBlock.POWER);
     }
 
@@ -894,16 +612,18 @@ public class RedstoneChainEntity extends BlockEntity {
      * <p>
      * What gets saved:
      * 1. First, call the parent class to save standard data (position, etc.)
-     * 2. Create a ListTag to hold all connection positions
-     * 3. For each connection:
-     * a. Create a CompoundTag (like a JSON object)
-     * b. Store the x, y, z coordinates as integers
-     * c. Add this tag to the list
-     * 4. Store the list in the main tag under the key "Connections"
+     * 2. Every connection target is stored as its offset from this block, packed into one int
+     * (10 bits per axis, see packOffset) - the whole list is a single IntArrayTag "Links"
+     * 3. Targets too far away for 10 bits (only possible with a huge maxConnectionDistance)
+     * go into a LongArrayTag "FarLinks" as absolute BlockPos.asLong() keys
+     * <p>
+     * A connection takes 4 bytes instead of a CompoundTag with three named ints (~40 bytes),
+     * which keeps region files, chunk packets and getUpdateTag() small for wire-heavy builds.
+     * Worlds saved with the old "Connections" list are migrated on load (see loadAdditional).
      * <p>
      * Why save connections but not the network?
      * - Connections are the fundamental data (what we explicitly created)
-     * - The network can be rebuilt from connections (it's derived data)
+     * - Network membership is level-wide data, persisted once by the RedstoneNetworkManager
      * - This saves disk space and prevents stale network data
      * <p>
      * When the world loads, loadAdditional() will read this data back.
@@ -915,15 +635,50 @@ public class RedstoneChainEntity extends BlockEntity {
     protected void saveAdditional(CompoundTag tag, HolderLookup.Provider registries) {
         super.saveAdditional(tag, registries);
 
-        ListTag list = new ListTag();
-        for (BlockPos pos : connections) {
-            CompoundTag posTag = new CompoundTag();
-            posTag.putInt("x", pos.getX());
-            posTag.putInt("y", pos.getY());
-            posTag.putInt("z", pos.getZ());
-            list.add(posTag);
+        IntArrayList links = new IntArrayList(connections.size());
+        LongArrayList farLinks = null;
+        for (int i = 0; i < connections.size(); i++) {
+            long target = connections.getLong(i);
+            int dx = BlockPos.getX(target) - worldPosition.getX();
+            int dy = BlockPos.getY(target) - worldPosition.getY();
+            int dz = BlockPos.getZ(target) - worldPosition.getZ();
+            if (fitsOffset(dx) && fitsOffset(dy) && fitsOffset(dz)) {
+                links.add(packOffset(dx, dy, dz));
+            } else {
+                if (farLinks == null) farLinks = new LongArrayList();
+                farLinks.add(target);
+            }
+        }
+        tag.putIntArray("Links", links.toIntArray());
+        if (farLinks != null) {
+            tag.putLongArray("FarLinks", farLinks.toLongArray());
         }
-        tag.put("Connections", list);
+    }
+
+    // ===== Offset packing =====
+    // A connection offset (dx, dy, dz) is stored as three 10-bit two's complement fields
+    // in one int: bits 20-29 = dx, bits 10-19 = dy, bits 0-9 = dz. Range: -512..511 per axis.
+
+    private static final int OFFSET_BITS = 10;
+    private static final int OFFSET_MASK = (1 << OFFSET_BITS) - 1;
+    private static final int OFFSET_LIMIT = 1 << (OFFSET_BITS - 1);
+
+    private static boolean fitsOffset(int delta) {
+        return delta >= -OFFSET_LIMIT && delta < OFFSET_LIMIT;
+    }
+
+    static int packOffset(int dx, int dy, int dz) {
+        return (dx & OFFSET_MASK) << (2 * OFFSET_BITS) | (dy & OFFSET_MASK) << OFFSET_BITS | (dz & OFFSET_MASK);
+    }
+
+    /**
+     * Unpacks one axis: shifts its field to the top of the int, then back down with sign extension.
+     *
+     * @param axis 0 = x, 1 = y, 2 = z
+     */
+    static int unpackOffset(int packed, int axis) {
+        int shift = (2 - axis) * OFFSET_BITS;
+        return packed << (32 - OFFSET_BITS - shift) >> (32 - OFFSET_BITS);
     }
 
     /**
@@ -937,18 +692,14 @@ public class RedstoneChainEntity extends BlockEntity {
      * What gets loaded:
      * 1. First, call the parent class to load standard data
      * 2. Clear the current connections list (start fresh)
-     * 3. Get the "Connections" list from the NBT tag
-     * - TAG_COMPOUND (10) indicates we're reading CompoundTags from the list
-     * 4. For each entry in the list:
-     * a. Cast it to CompoundTag
-     * b. Read the x, y, z integers
-     * c. Create a BlockPos from those coordinates
-     * d. Add it to the connections list
-     * 5. Mark the network as dirty (needs rebuild)
-     * - The network isn't saved, so we need to rebuild it from connections
-     * <p>
-     * After loading, the block entity has the same connections it had when saved,
-     * and will rebuild its network on the next update.
+     * 3. Unpack every offset in "Links" and add this block's position to it
+     * 4. Add the absolute positions in "FarLinks" as they are
+     * 5. Migration: data saved before the compact format has a "Connections" list of
+     * CompoundTags with x, y, z ints instead. It is read the old way, and the block entity is
+     * marked changed in onLoad() so the chunk is re-saved in the compact format
+     * <p>
+     * After loading, the block entity has the same connections it had when saved.
+     * Its network handle is picked up from the RedstoneNetworkManager in onLoad().
      *
      * @param tag        The NBT tag to read data from
      * @param registries Registry access for complex data types (not used here)
@@ -958,12 +709,93 @@ public class RedstoneChainEntity extends BlockEntity {
         super.loadAdditional(tag, registries);
 
         connections.clear();
+        for (int packed : tag.getIntArray("Links")) {
+            connections.add(BlockPos.asLong(
+                    worldPosition.getX() + unpackOffset(packed, 0),
+                    worldPosition.getY() + unpackOffset(packed, 1),
+                    worldPosition.getZ() + unpackOffset(packed, 2)));
+        }
+        for (long target : tag.getLongArray("FarLinks")) {
+            connections.add(target);
+        }
+
+        // Legacy format: one CompoundTag per connection
+        loadedLegacyFormat = tag.contains("Connections", Tag.TAG_LIST);
         ListTag list = tag.getList("Connections", Tag.TAG_COMPOUND);
         for (Tag t : list) {
             CompoundTag posTag = (CompoundTag) t;
-            connections.add(new BlockPos(posTag.getInt("x"), posTag.getInt("y"), posTag.getInt("z")));
+            connections.add(BlockPos.asLong(posTag.getInt("x"), posTag.getInt("y"), posTag.getInt("z")));
+        }
+        onConnectionsChanged();
+    }
+
+    /**
+     * Called once this block entity has been added to a level (placed or loaded with its chunk).
+     * <p>
+     * Registers this block with the level's RedstoneNetworkManager and picks up its network
+     * handle (a block the registry did not know yet starts out as its own network).
+     * <p>
+     * Everything else is queued: at the end of the tick, all chain blocks that loaded in that
+     * tick are settled together by RedstoneNetworkManager.processLoadedNodes() - the connections
+     * are brought in line with the manager's edge list, ports are read and each network is
+     * re-evaluated once. Loading a region with thousands of chain blocks therefore costs one pass, not one
+     * network walk per block. Chains that are not loaded yet will join us when they load.
+     */
+    @Override
+    public void onLoad() {
+        super.onLoad();
+        RedstoneNetworkManager manager = getNetworkManager();
+        if (manager == null) return;
+
+        networkId = manager.register(worldPosition);
+        manager.getScheduler().nodeLoaded(worldPosition);
+        if (loadedLegacyFormat) {
+            loadedLegacyFormat = false;
+            markConnectionsUnsaved();
+        }
+    }
+
+    /**
+     * On the client, lets the cable renderers drop the cables this block draws
+     * (block removed or chunk unloaded, see RedstoneChainEvent.Removed).
+     */
+    @Override
+    public void setRemoved() {
+        super.setRemoved();
+        if (level != null && level.isClientSide) {
+            NeoForge.EVENT_BUS.post(new RedstoneChainEvent.Removed(this));
         }
-        networkDirty = true;
+    }
+
+    /**
+     * Replaces the stored connections with the edges the RedstoneNetworkManager has for this
+     * block (see RedstoneNetworkManager.processLoadedNodes). The manager's edge list is
+     * authoritative: this chunk may have been saved before or after the latest cable change.
+     * <p>
+     * Saves and syncs only if something actually changed; the order of connections that are
+     * kept does not change.
+     *
+     * @param edges The edges stored for this block, as BlockPos.asLong() keys
+     */
+    void syncConnections(LongList edges) {
+        int dropped = 0;
+        for (int i = connections.size() - 1; i >= 0; i--) {
+            if (!edges.contains(connections.getLong(i))) {
+                connections.removeLong(i);
+                dropped++;
+            }
+        }
+        int kept = connections.size();
+        for (int i = 0; i < edges.size(); i++) {
+            if (!connections.contains(edges.getLong(i))) {
+                connections.add(edges.getLong(i));
+            }
+        }
+        if (dropped == 0 && connections.size() == kept) return;
+
+        RedstoneWireMetrics.STALE_CONNECTIONS_DROPPED.add(dropped);
+        onConnectionsChanged();
+        saveAndSync();
     }
 
     /**
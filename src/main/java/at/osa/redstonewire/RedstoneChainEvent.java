@@ -0,0 +1,52 @@
+package at.osa.redstonewire;
+
+import net.neoforged.bus.api.Event;
+
+/**
+ * Changes to a chain block that client-only code reacts to, such as cached cable meshes.
+ * <p>
+ * RedstoneChainEntity is common code and runs on dedicated servers too, so it cannot call
+ * client classes. Instead it posts these events on NeoForge.EVENT_BUS, but only in client
+ * levels. The client listeners are registered in RedstoneWireClient. On a dedicated server
+ * nothing is posted, and no client class is ever loaded.
+ */
+public abstract class RedstoneChainEvent extends Event {
+
+    private final RedstoneChainEntity chain;
+
+    protected RedstoneChainEvent(RedstoneChainEntity chain) {
+        this.chain = chain;
+    }
+
+    public RedstoneChainEntity getChain() {
+        return chain;
+    }
+
+    /**
+     * The chain block's connections changed, so the cables it draws may have changed.
+     */
+    public static class ConnectionsChanged extends RedstoneChainEvent {
+        public ConnectionsChanged(RedstoneChainEntity chain) {
+            super(chain);
+        }
+    }
+
+    /**
+     * The chain block entity was removed: the block was broken or its chunk unloaded.
+     */
+    public static class Removed extends RedstoneChainEvent {
+        public Removed(RedstoneChainEntity chain) {
+            super(chain);
+        }
+    }
+
+    /**
+     * The chain block's POWER changed. Its cables are colored by it. Posted by
+     * RedstoneChainBlock, because the block state changes while the block entity stays.
+     */
+    public static class PowerChanged extends RedstoneChainEvent {
+        public PowerChanged(RedstoneChainEntity chain) {
+            super(chain);
+        }
+    }
+}
@@ -2,24 +2,77 @@ package at.osa.redstonewire;
 
 import com.mojang.blaze3d.vertex.PoseStack;
 import com.mojang.blaze3d.vertex.VertexConsumer;
+import it.unimi.dsi.fastutil.longs.LongList;
+import net.minecraft.client.Minecraft;
 import net.minecraft.client.renderer.MultiBufferSource;
+import net.minecraft.client.renderer.blockentity.BlockEntityRenderDispatcher;
 import net.minecraft.client.renderer.blockentity.BlockEntityRenderer;
 import net.minecraft.client.renderer.blockentity.BlockEntityRendererProvider;
+import net.minecraft.client.renderer.culling.Frustum;
 import net.minecraft.core.BlockPos;
+import net.minecraft.world.phys.AABB;
 import net.minecraft.world.phys.Vec3;
+import net.neoforged.neoforge.client.event.CustomizeGuiOverlayEvent;
+import net.neoforged.neoforge.client.event.RenderFrameEvent;
 import org.joml.Matrix4f;
 
 /**
  * Renders cables between connected RedstoneChainEntity blocks.
  * Cables sag realistically and are colored based on power level.
+ * <p>
+ * The mesh itself is built once per cable by CableMesh and kept in the CableMeshCache. Each
+ * frame this renderer only copies the cached vertices to the vertex buffer, through one
+ * reused CableVertexWriter - drawing cables allocates nothing per frame.
+ * <p>
+ * Cables are drawn with less detail the further they are from the camera (see detailFor):
+ * - Near: the configured sides and segments
+ * - Medium (Config.CABLE_LOD_MEDIUM_DISTANCE): a third of the sides, half the segments
+ * - Far (Config.CABLE_LOD_FAR_DISTANCE): a flat upright ribbon, a quarter of the segments
+ * Every level samples the same sag curve, so a cable keeps its shape when it switches.
+ * <p>
+ * Culling: each cable has a bounding box that covers its sag (CableMeshCache.getBounds), and
+ * a chain block's render bounding box covers every cable it draws. Minecraft uses it to skip
+ * chain blocks whose cables are all off-screen, and still draws a block whose own position is
+ * off-screen while one of its cables is visible (shouldRenderOffScreen). Within a block, each
+ * cable is skipped if its box is outside the view frustum or it is further away than
+ * Config.MAX_RENDER_DISTANCE. The counts of drawn and culled cables are shown on the F3 screen.
+ * <p>
+ * With Config.BAKE_CABLE_GEOMETRY (the default), cables are part of the chunk section meshes
+ * instead (see CableSectionGeometry) and this renderer draws nothing.
  *
  * @credit Create Crafts & Additions: https://github.com/mrh0/createaddition
  * @credit Overhead Redstone Wires: https://github.com/MaxLegend/OverheadRedstoneWires
  */
 public class RedstoneChainRenderer implements BlockEntityRenderer<RedstoneChainEntity> {
 
+    /**
+     * Forwards CableMesh vertices to the current vertex buffer. Reused for every cable.
+     */
+    private final CableVertexWriter writer = new CableVertexWriter();
+
+    /**
+     * Detail levels, from near to far (see detailFor).
+     */
+    static final int DETAIL_NEAR = 0;
+    static final int DETAIL_MEDIUM = 1;
+    static final int DETAIL_FAR = 2;
+    static final int DETAIL_LEVELS = 3;
+
+    /**
+     * Cables drawn and culled in the current frame, and the totals of the last complete frame
+     * (shown on the F3 screen). Render thread only.
+     */
+    private static int drawnThisFrame, culledByFrustumThisFrame, culledByDistanceThisFrame;
+    private static int drawnLastFrame, culledByFrustumLastFrame, culledByDistanceLastFrame;
+
+    /**
+     * Provides the camera, for culling and picking each cable's level of detail.
+     */
+    private final BlockEntityRenderDispatcher dispatcher;
+
     public RedstoneChainRenderer(BlockEntityRendererProvider.Context ctx) {
         super();
+        this.dispatcher = ctx.getBlockEntityRenderDispatcher();
     }
 
     /**
@@ -37,215 +90,232 @@ public class RedstoneChainRenderer implements BlockEntityRenderer<RedstoneChainE
     public void render(RedstoneChainEntity entity, float partialTicks, PoseStack stack,
                        MultiBufferSource buffer, int packedLight, int packedOverlay) {
         BlockPos blockPos = entity.getBlockPos();
+        long self = blockPos.asLong();
         int power = entity.getSignal();
-
-        // Iterate through all connected blocks
-        for (BlockPos connection : entity.getConnections()) {
-            // Only render cable once per connection (compareTo ensures A->B is only rendered from A)
+        LongList connections = entity.getConnectionKeys();
+        Vec3 camera = dispatcher.camera.getPosition();
+        Frustum frustum = Minecraft.getInstance().levelRenderer.getFrustum();
+        double maxDistance = Config.getViewDistance();
+        float thickness = (float) Config.getCableThickness();
+        float sagAmount = (float) Config.getCableSagAmount();
+
+        // Iterate through all connected blocks (by index - no iterator per frame)
+        for (int i = 0; i < connections.size(); i++) {
+            long connection = connections.getLong(i);
+            // Only render cable once per connection (the smaller key renders it)
             // This avoids rendering the same cable twice
-            if (blockPos.compareTo(connection) < 0) {
+            if (self < connection) {
                 // Start point is the top center of the full block (0.5, 1.0, 0.5)
-                Vec3 start = new Vec3(0.5, 1.0, 0.5);
-
                 // End point is the top center of connected block, relative to current block
-                Vec3 end = Vec3.atCenterOf(connection)
-                        .subtract(Vec3.atCenterOf(blockPos))
-                        .add(0.5, 1.0, 0.5);
-
-                renderCable(stack, buffer, start, end, power, packedLight, packedOverlay);
+                float toX = BlockPos.getX(connection) - blockPos.getX() + 0.5f;
+                float toY = BlockPos.getY(connection) - blockPos.getY() + 1.0f;
+                float toZ = BlockPos.getZ(connection) - blockPos.getZ() + 0.5f;
+                double distanceSqr = distanceToCableSqr(
+                        camera.x - blockPos.getX(), camera.y - blockPos.getY(), camera.z - blockPos.getZ(),
+                        0.5f, 1.0f, 0.5f, toX, toY, toZ);
+
+                // Culling: too far away, or outside the view
+                if (distanceSqr > maxDistance * maxDistance) {
+                    culledByDistanceThisFrame++;
+                    continue;
+                }
+                if (frustum != null && !frustum.isVisible(CableMeshCache.getBounds(self, connection, thickness, sagAmount))) {
+                    culledByFrustumThisFrame++;
+                    continue;
+                }
+                drawnThisFrame++;
+
+                renderCable(stack, buffer, self, connection, detailFor(distanceSqr), 0.5f, 1.0f, 0.5f, toX, toY, toZ,
+                        power, packedLight, packedOverlay);
             }
         }
     }
 
     /**
      * Renders a cable as segments with quad geometry.
-     * Breaks the cable into multiple segments and calls drawSegment for each.
-     * This creates the illusion of a smooth, curved cable by chaining many small cylinders.
+     * Breaks the cable into multiple segments (see CableMesh) - this creates the illusion of a
+     * smooth, curved cable by chaining many small cylinders. The mesh comes from the
+     * CableMeshCache, so it is only built the first time the cable is drawn.
+     * <p>
+     * Even and odd segments use the primary and alternate color configuration, which creates
+     * the visual striping pattern.
      *
      * @param stack Transformation matrix stack
      * @param buffer Vertex buffer source
-     * @param from Starting position of cable
-     * @param to Ending position of cable
+     * @param owner Position of this block, as BlockPos.asLong()
+     * @param target Position of the connected block, as BlockPos.asLong()
+     * @param detail Level of detail (DETAIL_NEAR, DETAIL_MEDIUM or DETAIL_FAR)
+     * @param fromX Starting position of cable (fromY, fromZ likewise)
+     * @param toX Ending position of cable (toY, toZ likewise)
      * @param power Signal strength (0-15) - used to determine cable color
      * @param light Packed light value
      * @param overlay Packed overlay value
      */
-    private void renderCable(PoseStack stack, MultiBufferSource buffer, Vec3 from, Vec3 to,
-                            int power, int light, int overlay) {
+    private void renderCable(PoseStack stack, MultiBufferSource buffer, long owner, long target, int detail,
+                             float fromX, float fromY, float fromZ, float toX, float toY, float toZ,
+                             int power, int light, int overlay) {
         // Get the vertex consumer for our custom render type (handles shader, blend mode, etc.)
-        VertexConsumer builder = buffer.getBuffer(RedstoneRenderType.CABLE_RENDERTYPE);
-
+        writer.builder = buffer.getBuffer(RedstoneRenderType.CABLE_RENDERTYPE);
         // Get current transformation matrix from the stack (converts local coords to world coords)
-        Matrix4f matrix = stack.last().pose();
-
-        // Break cable into many small segments - more segments = smoother curve
-        int segments = Config.getCableSegments();
-        for (int i = 0; i < segments; i++) {
-            // t is a value from 0 to 1 representing position along the cable
-            // t1 = start of this segment, t2 = end of this segment
-            float t1 = i / (float) segments;
-            float t2 = (i + 1) / (float) segments;
-
-            // Get actual 3D positions using curved interpolation (includes sagging effect)
-            Vec3 p1 = interpolateCurved(from, to, t1);
-            Vec3 p2 = interpolateCurved(from, to, t2);
+        writer.matrix = stack.last().pose();
+        writer.light = light;
+        writer.overlay = overlay;
+
+        // Primary color (even segments), then the alternate color (odd segments)
+        writer.red = cableRed(power, false);
+        writer.green = (float) Config.getGreenValue();
+        writer.blue = (float) Config.getBlueValue();
+        writer.redAlt = cableRed(power, true);
+        writer.greenAlt = (float) Config.getGreenValueAlt();
+        writer.blueAlt = (float) Config.getBlueValueAlt();
+
+        int segments = segmentsFor(detail);
+        int sides = sidesFor(detail);
+        float[] mesh = CableMeshCache.getMesh(owner, target, detail, fromX, fromY, fromZ, toX, toY, toZ,
+                segments, sides, (float) Config.getCableThickness(), (float) Config.getCableSagAmount());
+        CableMesh.unpack(mesh, segments, sides, writer);
+        writer.builder = null;
+    }
 
-            // Determine color for this segment based on power level and segment index
-            float r, g, b;
-            if (i % 2 == 0) {
-                // Even segments: use primary color configuration
-                r = (float) getColorComponent(power, Config.getUnpoweredRed(), Config.getPoweredRedBase(), Config.getPoweredRedBonus(), true);
-                g = (float) Config.getGreenValue();
-                b = (float) Config.getBlueValue();
-            } else {
-                // Odd segments: use alternate color (creates visual striping pattern)
-                r = (float) getColorComponent(power, Config.getUnpoweredRedAlt(), Config.getPoweredRedBaseAlt(), Config.getPoweredRedBonusAlt(), true);
-                g = (float) Config.getGreenValueAlt();
-                b = (float) Config.getBlueValueAlt();
-            }
+    // ===== Culling =====
 
-            // Draw this segment as a cylinder
-            drawSegment(builder, matrix, p1, p2, r, g, b, light, overlay);
-        }
+    /**
+     * The box Minecraft culls this chain block against: the block itself and every cable it draws.
+     */
+    @Override
+    public AABB getRenderBoundingBox(RedstoneChainEntity entity) {
+        return CableMeshCache.getRenderBounds(entity.getBlockPos().asLong(), entity.getConnectionKeys(),
+                (float) Config.getCableThickness(), (float) Config.getCableSagAmount());
     }
 
     /**
-     * Draw a single cable segment as a rounded cylinder with many radial faces.
-     * Creates a rope-like appearance by drawing a cylinder made of multiple quad faces.
-     *
-     * Key concept: A cylinder is created by generating points in a circle around the cable's
-     * direction, then connecting corresponding points at the start and end of the segment.
-     *
-     * @param builder The vertex consumer to submit geometry to
-     * @param matrix Current transformation matrix
-     * @param p1 Start point of this cable segment
-     * @param p2 End point of this cable segment
-     * @param r Red color component (0-1)
-     * @param g Green color component (0-1)
-     * @param b Blue color component (0-1)
-     * @param light Packed light value
-     * @param overlay Packed overlay value
+     * Cables reach outside the chain block's own section, so the block is drawn even if that
+     * section is not visible (its render bounding box is still checked against the view).
      */
-    private void drawSegment(VertexConsumer builder, Matrix4f matrix, Vec3 p1, Vec3 p2,
-                            float r, float g, float b, int light, int overlay) {
-        // Calculate the direction the cable points - this is the "spine" of our cylinder
-        Vec3 direction = p2.subtract(p1).normalize();
-
-        // To create a perpendicular vector, we need a reference "up" vector that isn't parallel to direction
-        // If cable points straight up/down, use X as up; otherwise use Y
-        Vec3 up = Math.abs(direction.y) > 0.999 ? new Vec3(1, 0, 0) : new Vec3(0, 1, 0);
+    @Override
+    public boolean shouldRenderOffScreen(RedstoneChainEntity entity) {
+        return true;
+    }
 
-        // Create one perpendicular vector to the cable by crossing direction × up
-        // This gives us a vector pointing "outward" from the cable
-        // Then normalize and scale it to the cable thickness
-        Vec3 basePerp = direction.cross(up).normalize().scale(Config.getCableThickness());
+    @Override
+    public int getViewDistance() {
+        return Config.getViewDistance();
+    }
 
-        // Create multiple perpendicular vectors arranged in a circle around the cable
-        // This is like points on the edge of a circular cross-section
-        // Example: if sides=12, we rotate basePerp 12 times around the cable in a full circle (360°)
-        int sides = Config.getCableSides();
-        Vec3[] perpVectors = new Vec3[sides];
-        for (int i = 0; i < sides; i++) {
-            // Calculate angle: i goes 0 to sides-1, so angle goes 0 to 360°
-            double angle = (i / (double) sides) * 2 * Math.PI;
-            // Rotate basePerp around the direction vector by this angle
-            perpVectors[i] = rotateAroundAxis(basePerp, direction, Math.toDegrees(angle));
+    /**
+     * Distance check for the whole chain block: measured to its render bounding box instead of
+     * its center, so a long cable is not dropped while its far end is still close.
+     */
+    @Override
+    public boolean shouldRender(RedstoneChainEntity entity, Vec3 cameraPos) {
+        if (CableSectionGeometry.isEnabled()) {
+            // Baked into the chunk sections
+            return false;
         }
+        AABB bounds = getRenderBoundingBox(entity);
+        double dx = Math.max(0, Math.max(bounds.minX - cameraPos.x, cameraPos.x - bounds.maxX));
+        double dy = Math.max(0, Math.max(bounds.minY - cameraPos.y, cameraPos.y - bounds.maxY));
+        double dz = Math.max(0, Math.max(bounds.minZ - cameraPos.z, cameraPos.z - bounds.maxZ));
+        double maxDistance = getViewDistance();
+        return dx * dx + dy * dy + dz * dz <= maxDistance * maxDistance;
+    }
 
-        // Now we have a ring of points around p1 and a ring of points around p2
-        // Connect each pair of consecutive rings with a quad face to form the cylinder surface
-        for (int i = 0; i < sides; i++) {
-            int next = (i + 1) % sides;  // Next point in the ring (wraps around to 0 at the end)
-
-            // The four corners of our quad face:
-            // - p1_current and p1_next: two adjacent points on the ring around p1
-            // - p2_current and p2_next: two adjacent points on the ring around p2
-            Vec3 p1_current = p1.add(perpVectors[i]);
-            Vec3 p1_next = p1.add(perpVectors[next]);
-            Vec3 p2_current = p2.add(perpVectors[i]);
-            Vec3 p2_next = p2.add(perpVectors[next]);
+    /**
+     * Game bus listener: closes the cable counts of the previous frame.
+     */
+    static void onRenderFrame(RenderFrameEvent.Pre event) {
+        drawnLastFrame = drawnThisFrame;
+        culledByFrustumLastFrame = culledByFrustumThisFrame;
+        culledByDistanceLastFrame = culledByDistanceThisFrame;
+        drawnThisFrame = 0;
+        culledByFrustumThisFrame = 0;
+        culledByDistanceThisFrame = 0;
+    }
 
-            // Draw quad connecting these 4 points (order matters for lighting - determines which way normal points)
-            drawQuad(builder, matrix, p1_current, p1_next, p2_next, p2_current, r, g, b, light, overlay);
+    /**
+     * Game bus listener: adds the cable counts of the last frame to the F3 screen.
+     */
+    static void onDebugText(CustomizeGuiOverlayEvent.DebugText event) {
+        if (CableSectionGeometry.isEnabled()) {
+            event.getLeft().add(String.format("Redstone cables: baked into %d chunk sections", CableSectionGeometry.size()));
+            return;
         }
+        event.getLeft().add(String.format("Redstone cables: %d drawn, %d culled (%d frustum, %d distance), %d meshes cached",
+                drawnLastFrame, culledByFrustumLastFrame + culledByDistanceLastFrame,
+                culledByFrustumLastFrame, culledByDistanceLastFrame, CableMeshCache.size()));
     }
 
+    // ===== Level of detail =====
+
     /**
-     * Rotates a vector around an arbitrary axis using Rodrigues' rotation formula.
-     * This is a mathematical formula that rotates any vector around any axis by any angle.
+     * Picks the level of detail for a cable.
      *
-     * We use this to create the ring of points around the cable cylinder.
-     * By rotating a base perpendicular vector multiple times around the cable direction,
-     * we generate evenly-spaced points in a circle.
-     *
-     * @param v The vector to rotate
-     * @param k The axis to rotate around (should be normalized)
-     * @param angleDegrees The rotation angle in degrees
-     * @return The rotated vector
+     * @param distanceSqr Squared distance from the camera to the cable
+     * @return DETAIL_NEAR, DETAIL_MEDIUM or DETAIL_FAR
      */
-    private Vec3 rotateAroundAxis(Vec3 v, Vec3 k, double angleDegrees) {
-        // Convert angle to radians (what the trig functions use)
-        double angleRad = Math.toRadians(angleDegrees);
-        double cos = Math.cos(angleRad);
-        double sin = Math.sin(angleRad);
-        double oneMinusCos = 1.0 - cos;
-
-        // Rodrigues' formula has three terms that we add together:
-        // term1: the component parallel to k stays roughly the same (scaled by cos)
-        Vec3 term1 = v.scale(cos);
-
-        // term2: perpendicular component rotates (k cross v scaled by sin)
-        Vec3 term2 = k.cross(v).scale(sin);
-
-        // term3: correction term to make the formula work (ensures result has same magnitude)
-        double dotProduct = k.dot(v);
-        Vec3 term3 = k.scale(dotProduct * oneMinusCos);
+    static int detailFor(double distanceSqr) {
+        double far = Config.getCableLodFarDistance();
+        if (distanceSqr >= far * far) {
+            return DETAIL_FAR;
+        }
+        double medium = Config.getCableLodMediumDistance();
+        return distanceSqr >= medium * medium ? DETAIL_MEDIUM : DETAIL_NEAR;
+    }
 
-        return term1.add(term2).add(term3);
+    /**
+     * Segments along the cable for a level of detail. Fewer segments sample the same sag curve
+     * at fewer points, so the cable's shape stays the same.
+     */
+    static int segmentsFor(int detail) {
+        int segments = Config.getCableSegments();
+        return switch (detail) {
+            case DETAIL_MEDIUM -> Math.max(2, (segments + 1) / 2);
+            case DETAIL_FAR -> Math.max(2, (segments + 3) / 4);
+            default -> segments;
+        };
     }
 
     /**
-     * Draw a single quad face (4 corners) as 2 triangles.
-     *
-     * In 3D graphics, quads must be split into triangles for rendering.
-     * We also calculate the surface normal (direction the face is pointing).
-     * The normal is used by the lighting system to determine how bright this face should be.
-     *
-     * Vertex order matters: vertices should be in counter-clockwise order when viewed from outside,
-     * so the normal points outward and lighting looks correct.
-     *
-     * @param builder The vertex consumer to submit to
-     * @param matrix Transformation matrix
-     * @param c0 First corner
-     * @param c1 Second corner
-     * @param c2 Third corner
-     * @param c3 Fourth corner
-     * @param r Red color
-     * @param g Green color
-     * @param b Blue color
-     * @param light Packed light value
-     * @param overlay Packed overlay value
+     * Sides around the cable for a level of detail. Far away, 2 sides make a flat ribbon
+     * (see CableMesh.ring).
      */
-    private void drawQuad(VertexConsumer builder, Matrix4f matrix,
-                         Vec3 c0, Vec3 c1, Vec3 c2, Vec3 c3,
-                         float r, float g, float b, int light, int overlay) {
-        // Calculate the surface normal (perpendicular direction to the face)
-        // We use the cross product of two edges: if they're perpendicular, the cross product
-        // points perpendicular to both (which is perpendicular to the face)
-        Vec3 edge1 = c1.subtract(c0);
-        Vec3 edge2 = c2.subtract(c1);
-        Vec3 normal = edge1.cross(edge2).normalize();
+    static int sidesFor(int detail) {
+        int sides = Config.getCableSides();
+        return switch (detail) {
+            case DETAIL_MEDIUM -> Math.max(4, sides / 3);
+            case DETAIL_FAR -> 2;
+            default -> sides;
+        };
+    }
 
-        // Minecraft requires triangles, not quads. So we split this quad into 2 triangles
-        // Triangle 1: c0, c1, c2
-        addVertex(builder, matrix, c0, r, g, b, light, overlay, normal);
-        addVertex(builder, matrix, c1, r, g, b, light, overlay, normal);
-        addVertex(builder, matrix, c2, r, g, b, light, overlay, normal);
+    /**
+     * Squared distance from a point (the camera) to the straight line between a cable's ends.
+     * The sag is ignored - it is small compared to the distances that pick a level of detail.
+     */
+    private static double distanceToCableSqr(double px, double py, double pz,
+                                             float ax, float ay, float az, float bx, float by, float bz) {
+        double abX = bx - ax;
+        double abY = by - ay;
+        double abZ = bz - az;
+        double apX = px - ax;
+        double apY = py - ay;
+        double apZ = pz - az;
+        double lengthSqr = abX * abX + abY * abY + abZ * abZ;
+        double t = lengthSqr == 0 ? 0 : Math.clamp((apX * abX + apY * abY + apZ * abZ) / lengthSqr, 0, 1);
+        double dx = apX - abX * t;
+        double dy = apY - abY * t;
+        double dz = apZ - abZ * t;
+        return dx * dx + dy * dy + dz * dz;
+    }
 
-        // Triangle 2: c0, c2, c3
-        addVertex(builder, matrix, c0, r, g, b, light, overlay, normal);
-        addVertex(builder, matrix, c2, r, g, b, light, overlay, normal);
-        addVertex(builder, matrix, c3, r, g, b, light, overlay, normal);
+    /**
+     * Red component of a cable's primary (even segments) or alternate (odd segments) color.
+     * Also used for cables baked into chunk sections (CableSectionGeometry).
+     */
+    static float cableRed(int power, boolean alt) {
+        return alt
+                ? (float) getColorComponent(power, Config.getUnpoweredRedAlt(), Config.getPoweredRedBaseAlt(), Config.getPoweredRedBonusAlt(), true)
+                : (float) getColorComponent(power, Config.getUnpoweredRed(), Config.getPoweredRedBase(), Config.getPoweredRedBonus(), true);
     }
 
     /**
@@ -262,7 +332,7 @@ public class RedstoneChainRenderer implements BlockEntityRenderer<RedstoneChainE
      * @param isRed Whether this is the red channel (affects formula)
      * @return Color component value (0-1)
      */
-    private double getColorComponent(int power, double unpowered, double base, double bonus, boolean isRed) {
+    private static double getColorComponent(int power, double unpowered, double base, double bonus, boolean isRed) {
         // If this is the red channel and cable has power
         if (isRed && power > 0) {
             // Linear interpolation: base + (power/15) * bonus
@@ -275,74 +345,46 @@ public class RedstoneChainRenderer implements BlockEntityRenderer<RedstoneChainE
     }
 
     /**
-     * Interpolates along a cable path with a realistic sagging effect.
-     * Real cables hang down due to gravity, so we add a downward curve.
-     *
-     * The curve uses a sine wave: it starts at 0, goes down in the middle, and returns to 0 at the end.
-     * This mimics how a real cable would sag.
-     *
-     * @param from Starting point of cable
-     * @param to Ending point of cable
-     * @param t Position along cable (0 = start, 1 = end)
-     * @return Interpolated position with sag applied
-     */
-    private static Vec3 interpolateCurved(Vec3 from, Vec3 to, float t) {
-        // First, do a linear interpolation (straight line) between from and to
-        Vec3 linear = from.lerp(to, t);
-
-        // Check if cable is mostly vertical (no sag for vertical cables)
-        double horizontalDist = Math.abs(from.x - to.x) + Math.abs(from.z - to.z);
-
-        // If horizontal distance is very small, cable is vertical - don't apply sag
-        if (horizontalDist < 0.001) {
-            return linear;
-        }
-
-        // Apply downward sag using sine wave:
-        // At t=0: sin(0) = 0, no sag
-        // At t=0.5: sin(π*0.5) = 1, maximum sag (downward)
-        // At t=1: sin(π) = 0, no sag
-        // Multiply by config value to control how much the cable sags
-        double sag = Math.sin(t * Math.PI) * Config.getCableSagAmount();
-
-        // Return the linear position moved down by sag amount
-        return new Vec3(linear.x, linear.y + sag, linear.z);
-    }
-
-    /**
-     * Adds a single vertex to the vertex buffer with all required properties.
-     * This is the lowest-level method that actually submits geometry data to Minecraft's rendering system.
-     *
+     * Adds CableMesh vertices to the vertex buffer with all required properties.
+     * This is the lowest-level code that actually submits geometry data to Minecraft's rendering system.
+     * <p>
      * A vertex contains:
-     * - Position: 3D coordinates (x, y, z)
-     * - Color: RGB values for coloring
+     * - Position: 3D coordinates (x, y, z), transformed by the pose matrix
+     * - Color: RGB values for coloring (primary or alternate, by segment)
      * - Normal: Direction the surface faces (affects lighting)
      * - Light: Brightness level
      * - Overlay: For damage/enchantment effects
-     *
-     * @param builder The vertex consumer (handles batch submission)
-     * @param matrix Transformation matrix to position the vertex
-     * @param pos The 3D position of this vertex
-     * @param r Red color (0-1)
-     * @param g Green color (0-1)
-     * @param b Blue color (0-1)
-     * @param light Packed light value (0-255)
-     * @param overlay Packed overlay value (0-255)
-     * @param normal Surface normal direction (affects shading/lighting)
+     * <p>
+     * The position is transformed here instead of with VertexConsumer.addVertex(Matrix4f, ...),
+     * which allocates a vector per vertex.
      */
-    private void addVertex(VertexConsumer builder, Matrix4f matrix, Vec3 pos,
-                          float r, float g, float b, int light, int overlay, Vec3 normal) {
-        // Start building a vertex at this position, transformed by the matrix
-        builder.addVertex(matrix, (float) pos.x, (float) pos.y, (float) pos.z)
-                // Set the vertex color (cables are red, or configured alternate colors)
-                .setColor(r, g, b, 1f)
-                // Set UV coordinates (texture mapping - we use 0,0 since we don't have a texture)
-                .setUv(0, 0)
-                // Set overlay for visual effects like damage or enchantment
-                .setOverlay(overlay)
-                // Set light level for brightness calculation
-                .setLight(light)
-                // Set surface normal (direction the face is pointing) for proper lighting
-                .setNormal((float) normal.x, (float) normal.y, (float) normal.z);
+    private static final class CableVertexWriter implements CableMesh.VertexSink {
+        VertexConsumer builder;
+        Matrix4f matrix;
+        int light;
+        int overlay;
+        float red, green, blue;
+        float redAlt, greenAlt, blueAlt;
+
+        @Override
+        public void vertex(float x, float y, float z, float nx, float ny, float nz, int segment) {
+            Matrix4f m = matrix;
+            boolean alt = (segment & 1) != 0;
+            // Start building a vertex at this position, transformed by the matrix
+            builder.addVertex(
+                            m.m00() * x + m.m10() * y + m.m20() * z + m.m30(),
+                            m.m01() * x + m.m11() * y + m.m21() * z + m.m31(),
+                            m.m02() * x + m.m12() * y + m.m22() * z + m.m32())
+                    // Set the vertex color (cables are red, or configured alternate colors)
+                    .setColor(alt ? redAlt : red, alt ? greenAlt : green, alt ? blueAlt : blue, 1f)
+                    // Set UV coordinates (texture mapping - we use 0,0 since we don't have a texture)
+                    .setUv(0, 0)
+                    // Set overlay for visual effects like damage or enchantment
+                    .setOverlay(overlay)
+                    // Set light level for brightness calculation
+                    .setLight(light)
+                    // Set surface normal (direction the face is pointing) for proper lighting
+                    .setNormal(nx, ny, nz);
+        }
     }
 }
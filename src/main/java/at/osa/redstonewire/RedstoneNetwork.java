@@ -0,0 +1,687 @@
+package at.osa.redstonewire;
+
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongList;
+import net.minecraft.ChatFormatting;
+import net.minecraft.SharedConstants;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.Direction;
+import net.minecraft.core.SectionPos;
+import net.minecraft.network.chat.Component;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.block.Block;
+import net.minecraft.world.level.block.RedStoneWireBlock;
+import net.minecraft.world.level.block.state.BlockState;
+
+import java.util.Arrays;
+
+/**
+ * One connected component of chain blocks, owned by a {@link RedstoneNetworkManager}.
+ * <p>
+ * A network is identified by a stable id. Block entities never reference this object
+ * directly - they keep the id handle they were given and resolve it through the manager,
+ * which follows union-find parent links to the network that currently owns that id.
+ * <p>
+ * Members are not stored here. The manager keeps them in a circular linked list and this
+ * object only remembers one member (the head) and the size, which is what makes merging
+ * two networks a constant-time operation.
+ * <p>
+ * The network also owns the signal state that used to live on every block entity, so a
+ * network is evaluated once (by the {@link RedstoneNetworkScheduler}) instead of once per member.
+ * <p>
+ * Input is read from an index of "input ports" instead of scanning every member:
+ * - A port is a face of a member block that touches a non-chain, non-air block
+ * - Each port caches the signal it last received; the cache is refreshed from neighborChanged
+ * - portSignalCounts counts how many ports sit at each strength (0-15), so the strongest
+ *   input is found by looking at 16 counters - even after the strongest source turns off
+ * <p>
+ * With Config.NETWORK_POWER_MODE the network's power is only stored here (cachedInputSignal).
+ * Chain blocks read it through RedstoneChainEntity.getSignal(), and only "output nodes" -
+ * members that have ports, i.e. touch something that can be powered - get their block state
+ * rewritten when the power changes.
+ */
+public class RedstoneNetwork {
+
+    /**
+     * Marks a face that is not an input port.
+     */
+    static final byte NO_PORT = -1;
+
+    /**
+     * Stable id of this network. Also the root of its union-find tree.
+     */
+    private final int id;
+
+    /**
+     * Number of chain blocks in this network.
+     */
+    private int size;
+
+    /**
+     * Any member of this network (BlockPos.asLong()), used as the entry point into the
+     * member list. Meaningless while the network is empty (right before the manager drops it).
+     */
+    private long head;
+
+    // ===== Scheduling =====
+    /**
+     * Game time of the next periodic safety-net evaluation, or -1 if the scheduler
+     * has not picked this network up yet.
+     */
+    private long nextCheckTick = -1;
+
+    /**
+     * Current distance between periodic evaluations, or 0 for "the configured base interval".
+     * Doubles while the network stays idle, see RedstoneNetworkScheduler.
+     */
+    private int checkInterval = 0;
+
+    /**
+     * Number of ticks in a row this network was carried over because the tick budget
+     * was used up. Reset when it is evaluated.
+     */
+    private int ticksDeferred = 0;
+
+    /**
+     * Bounding box of all blocks that ever joined this network, in block coordinates.
+     * It grows on every join and merge but does not shrink when members leave, so it may
+     * be larger than the network - good enough for ranking networks by distance.
+     */
+    private int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, minZ = Integer.MAX_VALUE;
+    private int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE, maxZ = Integer.MIN_VALUE;
+
+    // ===== Feedback Loop Protection =====
+    /**
+     * Prevents recursive update calls that could cause infinite loops.
+     * Set to true during update(), cleared in finally block.
+     */
+    private boolean isUpdating = false;
+
+    // ===== Signal Management =====
+    /**
+     * Number of evaluations in a row that found no external power input.
+     * Used to delay signal loss and prevent flickering.
+     */
+    private int ticksWithoutInput = 0;
+
+    /**
+     * The last known input signal strength from external sources.
+     * Cached to maintain signal briefly after input is lost.
+     */
+    private int cachedInputSignal = 0;
+
+    // ===== Oscillation Protection =====
+    /**
+     * Ring buffer with the game times of the most recent power changes, one slot per allowed
+     * transition per second (Config.MAX_TRANSITIONS_PER_SECOND). Allocated on the first change.
+     */
+    private long[] transitions;
+
+    /**
+     * Next slot of the ring buffer to overwrite - which is also the oldest recorded change.
+     */
+    private int transitionCursor = 0;
+
+    /**
+     * Game time at which a held-back power change may be applied, or 0.
+     */
+    private long rateLimitedUntil = 0;
+
+    /**
+     * Set once this network was logged as oscillating, so the log is not flooded.
+     */
+    private boolean oscillationReported = false;
+
+    // ===== Oversized Networks =====
+    /**
+     * Blocks still to be updated by a power change that is being applied over several ticks
+     * (safety mode for networks larger than Config.MAX_NETWORK_SIZE), or null.
+     */
+    private LongList pendingTargets;
+
+    /**
+     * Index of the next block in pendingTargets.
+     */
+    private int pendingCursor = 0;
+
+    /**
+     * Signal that pendingTargets are being set to.
+     */
+    private int pendingSignal = 0;
+
+    /**
+     * Set once this network was reported as oversized.
+     */
+    private boolean oversizeReported = false;
+
+    // ===== Input Ports =====
+    /**
+     * Input ports of this network, per member block (keyed by BlockPos.asLong()). The array
+     * is indexed by Direction.get3DDataValue() and holds the cached signal of that face,
+     * or NO_PORT. Members without any port have no entry.
+     */
+    private final Long2ObjectOpenHashMap<byte[]> ports = new Long2ObjectOpenHashMap<>();
+
+    /**
+     * Number of ports currently receiving each signal strength (index = strength 0-15).
+     */
+    private final int[] portSignalCounts = new int[16];
+
+    RedstoneNetwork(int id) {
+        this.id = id;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    void setSize(int size) {
+        this.size = size;
+    }
+
+    long getHead() {
+        return head;
+    }
+
+    void setHead(long head) {
+        this.head = head;
+    }
+
+    long getNextCheckTick() {
+        return nextCheckTick;
+    }
+
+    void setNextCheckTick(long nextCheckTick) {
+        this.nextCheckTick = nextCheckTick;
+    }
+
+    int getCheckInterval() {
+        return checkInterval;
+    }
+
+    void setCheckInterval(int checkInterval) {
+        this.checkInterval = checkInterval;
+    }
+
+    int getTicksDeferred() {
+        return ticksDeferred;
+    }
+
+    void setTicksDeferred(int ticksDeferred) {
+        this.ticksDeferred = ticksDeferred;
+    }
+
+    // ===== Bounds =====
+
+    /**
+     * Grows the bounding box to contain a block (BlockPos.asLong()).
+     */
+    void includeInBounds(long pos) {
+        int x = BlockPos.getX(pos), y = BlockPos.getY(pos), z = BlockPos.getZ(pos);
+        minX = Math.min(minX, x);
+        minY = Math.min(minY, y);
+        minZ = Math.min(minZ, z);
+        maxX = Math.max(maxX, x);
+        maxY = Math.max(maxY, y);
+        maxZ = Math.max(maxZ, z);
+    }
+
+    /**
+     * Grows the bounding box to contain another network's box (the two are being merged).
+     */
+    void includeBounds(RedstoneNetwork other) {
+        minX = Math.min(minX, other.minX);
+        minY = Math.min(minY, other.minY);
+        minZ = Math.min(minZ, other.minZ);
+        maxX = Math.max(maxX, other.maxX);
+        maxY = Math.max(maxY, other.maxY);
+        maxZ = Math.max(maxZ, other.maxZ);
+    }
+
+    /**
+     * Squared distance from a point to the nearest point of the bounding box (0 inside it).
+     */
+    double distanceToBoundsSqr(double x, double y, double z) {
+        double dx = Math.max(0, Math.max(minX - x, x - (maxX + 1)));
+        double dy = Math.max(0, Math.max(minY - y, y - (maxY + 1)));
+        double dz = Math.max(0, Math.max(minZ - z, z - (maxZ + 1)));
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    /**
+     * Whether the bounding box overlaps a chunk (given as ChunkPos.asLong()).
+     */
+    boolean boundsIntersectChunk(long chunk) {
+        int chunkX = ChunkPos.getX(chunk), chunkZ = ChunkPos.getZ(chunk);
+        return chunkX >= SectionPos.blockToSectionCoord(minX) && chunkX <= SectionPos.blockToSectionCoord(maxX)
+                && chunkZ >= SectionPos.blockToSectionCoord(minZ) && chunkZ <= SectionPos.blockToSectionCoord(maxZ);
+    }
+
+    /**
+     * @return The signal strength (0-15) this network currently carries.
+     * In network power mode this is what every member block emits.
+     */
+    public int getCachedInputSignal() {
+        return cachedInputSignal;
+    }
+
+    /**
+     * Copies the signal state of the network this one split off from, so a freshly split
+     * piece does not briefly drop its power before its first evaluation.
+     */
+    void inheritSignalFrom(RedstoneNetwork other) {
+        this.cachedInputSignal = other.cachedInputSignal;
+        this.ticksWithoutInput = other.ticksWithoutInput;
+    }
+
+    // ===== Input Ports =====
+
+    /**
+     * Returns the strongest signal any input port of this network currently receives.
+     * <p>
+     * Reads the per-strength counters from the top down, so this costs at most 15 checks
+     * regardless of network size. When the strongest source turns off, its counter drops
+     * to zero and the next strength that still has ports becomes the maximum.
+     *
+     * @return Maximum power level (0-15) from any external redstone source
+     */
+    public int getStrongestInput() {
+        for (int strength = 15; strength > 0; strength--) {
+            if (portSignalCounts[strength] > 0) {
+                return strength;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Stores the signal of one face of a member block.
+     *
+     * @param pos    Member block (BlockPos.asLong())
+     * @param face   Face of that block
+     * @param signal Signal received through that face, or NO_PORT if the face is not a port
+     * @return true if the cached value changed
+     */
+    boolean setPort(long pos, Direction face, int signal) {
+        byte[] faces = ports.get(pos);
+        int index = face.get3DDataValue();
+        int old = faces == null ? NO_PORT : faces[index];
+        if (old == signal) {
+            return false;
+        }
+
+        if (old != NO_PORT) {
+            portSignalCounts[old]--;
+        }
+        if (signal != NO_PORT) {
+            if (faces == null) {
+                faces = new byte[6];
+                Arrays.fill(faces, NO_PORT);
+                ports.put(pos, faces);
+            }
+            faces[index] = (byte) signal;
+            portSignalCounts[signal]++;
+        } else {
+            faces[index] = NO_PORT;
+            if (isEmpty(faces)) {
+                ports.remove(pos);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Removes all ports of a member block (it left this network).
+     *
+     * @return The removed port signals, or null if the block had no ports
+     */
+    byte[] removePorts(long pos) {
+        byte[] faces = ports.remove(pos);
+        if (faces != null) {
+            for (byte signal : faces) {
+                if (signal != NO_PORT) {
+                    portSignalCounts[signal]--;
+                }
+            }
+        }
+        return faces;
+    }
+
+    /**
+     * Adds the ports of a block that joined this network.
+     */
+    void addPorts(long pos, byte[] faces) {
+        ports.put(pos, faces);
+        for (byte signal : faces) {
+            if (signal != NO_PORT) {
+                portSignalCounts[signal]++;
+            }
+        }
+    }
+
+    /**
+     * Moves every port of this network into another one (this network is being merged into it).
+     * Costs one step per port, not per member.
+     */
+    void transferPortsTo(RedstoneNetwork other) {
+        for (Long2ObjectMap.Entry<byte[]> entry : ports.long2ObjectEntrySet()) {
+            other.addPorts(entry.getLongKey(), entry.getValue());
+        }
+        ports.clear();
+        Arrays.fill(portSignalCounts, 0);
+    }
+
+    Long2ObjectMap<byte[]> getPorts() {
+        return ports;
+    }
+
+    /**
+     * Whether update() is running right now (a neighbor it notified is calling back in).
+     */
+    boolean isUpdating() {
+        return isUpdating;
+    }
+
+    private static boolean isEmpty(byte[] faces) {
+        for (byte signal : faces) {
+            if (signal != NO_PORT) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads what one face of a chain block currently touches.
+     * <p>
+     * Returns NO_PORT for air and other chain blocks (internal connections).
+     * Vanilla redstone wire is a port (something the network drives) but never counts as
+     * input, to prevent feedback loops.
+     *
+     * @param pos The chain block position we're checking from
+     * @param dir The direction to check
+     * @return Power level from that direction (0-15), or NO_PORT
+     */
+    static int readPort(ServerLevel level, BlockPos pos, Direction dir) {
+        BlockPos neighborPos = pos.relative(dir);
+        BlockState neighborState = level.getBlockState(neighborPos);
+        Block block = neighborState.getBlock();
+
+        // Nothing there, or another chain block (internal connection)
+        if (neighborState.isAir() || block instanceof RedstoneChainBlock) {
+            return NO_PORT;
+        }
+
+        // Vanilla redstone wire is driven by us, never read from (prevents feedback loops)
+        if (block instanceof RedStoneWireBlock) {
+            return 0;
+        }
+
+        // Get signal from this neighbor
+        // Note: dir.getOpposite() is used due to Minecraft's backwards direction API
+        return level.getSignal(neighborPos, dir.getOpposite());
+    }
+
+    // ===== Evaluation =====
+
+    /**
+     * Updates the redstone signal for the entire network.
+     * <p>
+     * This is the main coordination method that:
+     * 1. Prevents feedback loops using isUpdating flag
+     * 2. Looks up the strongest external input from the port index
+     * 3. Updates cached signal with delay to prevent flickering
+     * 4. Holds the change back if the network is flipping faster than
+     * Config.MAX_TRANSITIONS_PER_SECOND (see admitTransition)
+     * 5. Distributes signal to all blocks in network - or, in network power mode, only to
+     * the output nodes (members with ports); every other member reads the power from here
+     * <p>
+     * Safety mode: if there are more blocks to update than Config.MAX_NETWORK_SIZE (a network
+     * that was built before the limit, or under a higher one), the change is applied to at
+     * most that many blocks per evaluation and the network asks to be evaluated again next
+     * tick until every block has it. An oversized network therefore never costs more per
+     * tick than the largest allowed one. It is reported to operators once.
+     * <p>
+     * Called by the RedstoneNetworkScheduler, once per dirty network per tick.
+     *
+     * @param level   The level this network lives in
+     * @param manager The registry this network belongs to (for the member list)
+     * @return true if the network has to be evaluated again next tick: it is still holding
+     * a signal it has no input for (the signal-loss delay has to run out), or it is applying
+     * a change over several ticks
+     */
+    boolean update(ServerLevel level, RedstoneNetworkManager manager) {
+        // Prevent infinite recursion (feedback loop protection)
+        if (isUpdating) {
+            return false;
+        }
+
+        isUpdating = true;
+        try {
+            // Step 1: Strongest external input, straight from the port index
+            int currentInput = getStrongestInput();
+
+            // Step 2: Update cached signal with delay (prevents flickering)
+            int previousSignal = cachedInputSignal;
+            updateCachedSignal(currentInput);
+
+            // Step 3: Clocks and oscillating loops may only change the power so often
+            if (cachedInputSignal != previousSignal && !admitTransition(level.getGameTime())) {
+                cachedInputSignal = previousSignal;
+                return false;
+            }
+
+            boolean holdingSignal = currentInput == 0 && cachedInputSignal > 0;
+            int limit = Config.getMaxNetworkSize();
+            if (size > limit) {
+                reportOversized(level, limit);
+            }
+
+            // Oversized network still working through the blocks for this signal
+            if (pendingTargets != null && pendingSignal == cachedInputSignal) {
+                return applyNextSlice(level, limit) || holdingSignal;
+            }
+
+            // Step 4: Distribute the signal to all blocks (or only the output nodes).
+            // Ports are copied: applying the signal notifies neighbors, which may update ports.
+            LongList targets = Config.isNetworkPowerMode()
+                    ? new LongArrayList(ports.keySet())
+                    : manager.getMemberKeys(id);
+            if (targets.size() > limit) {
+                pendingTargets = targets;
+                pendingCursor = 0;
+                pendingSignal = cachedInputSignal;
+                return applyNextSlice(level, limit) || holdingSignal;
+            }
+
+            pendingTargets = null;
+            applySignalToNetwork(level, targets, cachedInputSignal);
+            return holdingSignal;
+        } finally {
+            // Always clear the updating flag, even if an exception occurs
+            isUpdating = false;
+        }
+    }
+
+    /**
+     * Applies a redstone signal strength to blocks of the network.
+     * <p>
+     * Works in two passes so every neighbor hears about the change exactly once:
+     * 1. Update the POWER property of every given RedstoneChainBlock whose power differs
+     * from the signal, with Block.UPDATE_CLIENTS only (clients see the change, neighbors
+     * are not notified yet). Comparators are still told about the analog output change.
+     * While doing so, collect the positions around each changed block that need to know:
+     * - Other chain blocks are skipped - chain faces are never input ports
+     * - Air is skipped - it does not react to updates
+     * - Blocks in unloaded chunks are never touched (neither members nor neighbors)
+     * - A neighbor shared by several changed blocks is only collected once
+     * 2. Notify each collected neighbor once, ordered by BlockPos.asLong() so the order
+     * does not depend on member list order or hash iteration
+     * <p>
+     * Compared to setBlock with flag 3 (six notifications per changed block), the
+     * notifications that were not needed are counted in
+     * RedstoneWireMetrics.NEIGHBOR_NOTIFICATIONS_SKIPPED.
+     *
+     * @param targets Chain blocks to update (BlockPos.asLong() keys)
+     * @param signal  The redstone signal strength (0-15) to apply
+     */
+    private static void applySignalToNetwork(ServerLevel level, LongList targets, int signal) {
+        // Neighbor position -> the changed chain block it is notified from
+        Long2LongOpenHashMap toNotify = new Long2LongOpenHashMap();
+        BlockPos.MutableBlockPos cursor = new BlockPos.MutableBlockPos();
+        BlockPos.MutableBlockPos neighborPos = new BlockPos.MutableBlockPos();
+        int changed = 0;
+
+        for (int i = 0; i < targets.size(); i++) {
+            long key = targets.getLong(i);
+            cursor.set(key);
+            // Dormant members (unloaded chunks) keep their last state until they load
+            if (!level.isLoaded(cursor)) continue;
+            BlockState state = level.getBlockState(cursor);
+            if (!(state.getBlock() instanceof RedstoneChainBlock)) continue;
+            if (state.getValue(RedstoneChainBlock.POWER) == signal) continue;
+
+            BlockPos pos = BlockPos.of(key);
+            RedstoneWireMetrics.recordChunkWrite(level, pos);
+            level.setBlock(pos, state.setValue(RedstoneChainBlock.POWER, signal), Block.UPDATE_CLIENTS);
+            level.updateNeighbourForOutputSignal(pos, state.getBlock());
+            changed++;
+
+            for (Direction dir : Direction.values()) {
+                neighborPos.setWithOffset(pos, dir);
+                if (!level.isLoaded(neighborPos)) continue;
+                BlockState neighborState = level.getBlockState(neighborPos);
+                if (neighborState.isAir() || neighborState.getBlock() instanceof RedstoneChainBlock) continue;
+                toNotify.putIfAbsent(neighborPos.asLong(), key);
+            }
+        }
+        if (changed == 0) {
+            return;
+        }
+
+        long[] order = toNotify.keySet().toLongArray();
+        Arrays.sort(order);
+        Block source = RedstoneWire.REDSTONE_CHAIN_BLOCK.get();
+        for (long neighbor : order) {
+            level.neighborChanged(BlockPos.of(neighbor), source, BlockPos.of(toNotify.get(neighbor)));
+        }
+        RedstoneWireMetrics.NEIGHBOR_NOTIFICATIONS.add(order.length);
+        RedstoneWireMetrics.NEIGHBOR_NOTIFICATIONS_SKIPPED.add(changed * 6L - order.length);
+    }
+
+    /**
+     * Records a power change in the ring buffer, unless the buffer shows that the network
+     * already changed Config.MAX_TRANSITIONS_PER_SECOND times during the last second.
+     * <p>
+     * A rejected change is not lost: rateLimitedUntil tells the scheduler when the oldest
+     * recorded change leaves the one-second window, and the network is evaluated again then.
+     * A fast clock therefore keeps working, just at the configured rate. The first rejection
+     * is logged with the network's location.
+     *
+     * @param now Current game time
+     * @return true if the change may be applied
+     */
+    private boolean admitTransition(long now) {
+        int limit = Config.getMaxTransitionsPerSecond();
+        if (limit <= 0) {
+            return true;
+        }
+        if (transitions == null || transitions.length != limit) {
+            transitions = new long[limit];
+            Arrays.fill(transitions, Long.MIN_VALUE);
+            transitionCursor = 0;
+        }
+
+        long oldest = transitions[transitionCursor];
+        if (oldest > now - SharedConstants.TICKS_PER_SECOND) {
+            rateLimitedUntil = oldest + SharedConstants.TICKS_PER_SECOND;
+            RedstoneWireMetrics.TRANSITIONS_RATE_LIMITED.increment();
+            if (!oscillationReported) {
+                oscillationReported = true;
+                RedstoneWire.LOGGER.warn("Redstone chain network {} ({} blocks) near {} changes power more than {} times per second; limiting it to that rate",
+                        id, size, BlockPos.of(head).toShortString(), limit);
+            }
+            return false;
+        }
+
+        transitions[transitionCursor] = now;
+        transitionCursor = (transitionCursor + 1) % limit;
+        rateLimitedUntil = 0;
+        return true;
+    }
+
+    /**
+     * Applies pendingSignal to the next (at most) sliceSize blocks of pendingTargets.
+     *
+     * @return true if blocks are left for the next tick
+     */
+    private boolean applyNextSlice(ServerLevel level, int sliceSize) {
+        int end = Math.min(pendingCursor + sliceSize, pendingTargets.size());
+        applySignalToNetwork(level, pendingTargets.subList(pendingCursor, end), pendingSignal);
+        pendingCursor = end;
+        if (pendingCursor < pendingTargets.size()) {
+            return true;
+        }
+        pendingTargets = null;
+        return false;
+    }
+
+    /**
+     * Logs an oversized network and tells every online operator about it, once per network.
+     * Operators can list all of them with /redstonewire oversized.
+     */
+    private void reportOversized(ServerLevel level, int limit) {
+        if (oversizeReported) return;
+        oversizeReported = true;
+
+        String location = BlockPos.of(head).toShortString();
+        RedstoneWire.LOGGER.warn("Redstone chain network {} near {} in {} has {} blocks (limit {}); updating it over several ticks",
+                id, location, level.dimension().location(), size, limit);
+        Component message = Component.literal("Redstone chain network near " + location + " has " + size
+                + " blocks (limit " + limit + "); it is updated over several ticks").withStyle(ChatFormatting.YELLOW);
+        for (ServerPlayer player : level.getServer().getPlayerList().getPlayers()) {
+            if (player.hasPermissions(2)) {
+                player.sendSystemMessage(message);
+            }
+        }
+    }
+
+    /**
+     * @return Game time at which a power change that was held back may be applied, or 0
+     */
+    long getRateLimitedUntil() {
+        return rateLimitedUntil;
+    }
+
+    /**
+     * Updates the cached signal based on current input.
+     * Implements a delay before clearing signal to prevent flickering.
+     *
+     * @param currentInput The current power level from external sources
+     */
+    private void updateCachedSignal(int currentInput) {
+        if (currentInput > 0) {
+            // Power detected - update cache immediately and reset delay counter
+            cachedInputSignal = currentInput;
+            ticksWithoutInput = 0;
+        } else {
+            // No power - increment delay counter
+            ticksWithoutInput++;
+
+            // Only clear signal after delay period has passed
+            if (ticksWithoutInput >= Config.SIGNAL_LOSS_DELAY_TICKS.getAsInt()) {
+                cachedInputSignal = 0;
+            }
+            // Otherwise keep the cached signal (prevents flickering)
+        }
+    }
+}
@@ -0,0 +1,1309 @@
+package at.osa.redstonewire;
+
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntList;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayFIFOQueue;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongCollection;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongList;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.Direction;
+import net.minecraft.core.HolderLookup;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.ListTag;
+import net.minecraft.nbt.NbtIo;
+import net.minecraft.nbt.NbtUtils;
+import net.minecraft.nbt.Tag;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.dimension.DimensionType;
+import net.minecraft.world.level.saveddata.SavedData;
+import net.minecraft.world.level.storage.LevelResource;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.function.LongFunction;
+import java.util.function.LongPredicate;
+
+/**
+ * Level-wide registry of chain block networks, stored as SavedData on each ServerLevel.
+ * <p>
+ * Every chain block in the level is a node in this registry, and every connected component
+ * of nodes is one {@link RedstoneNetwork} with a stable id.
+ * <p>
+ * How merging works (union-find):
+ * - Network ids form a forest. When two networks are joined, the smaller one's id gets
+ *   a parent link to the larger one's id, and the smaller RedstoneNetwork object is dropped.
+ * - Block entities keep whatever id handle they were given. find() follows parent links
+ *   (compressing the path as it goes) to the network that currently owns that handle.
+ * - Members are kept in a circular doubly-linked list (next/prev stored per node), so
+ *   joining two member lists is a pointer splice, not a copy.
+ * <p>
+ * The result is that connecting two large grids costs the same as connecting two single
+ * blocks, and no block entity ever holds a copy of its network's member set.
+ * <p>
+ * Storage: positions are keyed by BlockPos.asLong() in fastutil primitive collections
+ * (they ship with Minecraft), and network ids are plain ints. Nodes, member links, parent
+ * links and the split search queues therefore hold no boxed Long/Integer or BlockPos objects,
+ * and walking a network allocates nothing per visited block.
+ * <p>
+ * Topology store: the registry also holds the authoritative list of cable edges between
+ * nodes. Block entities keep a copy of their own edges for rendering, but chunks are saved
+ * independently of each other and of this data, so after a crash two chunks may disagree
+ * about a cable. The edge list here wins: when a chain block loads, its stored connections
+ * are replaced with the registry's edges (processLoadedNodes). Every change is also handed
+ * to a crash journal once per tick (RedstoneTopologyJournal), which a background thread
+ * writes to disk, and the registry file itself is replaced atomically on save, so the store
+ * lags the game by no more than the journal writer.
+ * <p>
+ * Chunk loading: nodes in unloaded chunks stay registered and keep their network, edges,
+ * cached input ports and last known power. Split checks walk the stored edges and never
+ * read the world, so cutting a cable next to unloaded chunks is decided right away. Only
+ * "unseeded" nodes - known from a save made before edges were stored here - have edges
+ * that are not known yet; the split search stops at them and leaves the check for later
+ * (see splitDisconnected and retryDeferredSplitChecks).
+ * <p>
+ * Network membership, edges and the cached signals of each network's input ports are
+ * persisted. Union-find parent links are runtime-only: on save every network is written
+ * under its root id, and block entities refresh their handle from the registry when they load.
+ */
+public class RedstoneNetworkManager extends SavedData {
+
+    private static final String DATA_NAME = RedstoneWire.MODID + "_networks";
+
+    private static final SavedData.Factory<RedstoneNetworkManager> FACTORY =
+            new SavedData.Factory<>(RedstoneNetworkManager::new, RedstoneNetworkManager::load, null);
+
+    /**
+     * Every registered chain block (keyed by BlockPos.asLong()), with its network handle
+     * and member list links.
+     */
+    private final Long2ObjectOpenHashMap<Node> nodes = new Long2ObjectOpenHashMap<>();
+
+    /**
+     * Union-find parent links: merged network id -> id it was merged into.
+     * Root ids have no entry (0 is returned, which is never a network id).
+     * Every merge adds an entry; compactParents() drops them again once they pile up.
+     */
+    private final Int2IntOpenHashMap parents = new Int2IntOpenHashMap();
+
+    /**
+     * Live networks, keyed by their (root) id.
+     */
+    private final Int2ObjectOpenHashMap<RedstoneNetwork> networks = new Int2ObjectOpenHashMap<>();
+
+    /**
+     * Next id to hand out. Ids are never reused, so a stale handle can never
+     * accidentally resolve to an unrelated network.
+     */
+    private int nextNetworkId = 1;
+
+    /**
+     * Endpoints of cuts whose split check could not be finished because part of the network
+     * was in unloaded chunks. Re-checked once those chunks load.
+     */
+    private final LongOpenHashSet deferredSplitChecks = new LongOpenHashSet();
+
+    /**
+     * Endpoints of cuts made during the current tick (removed blocks, stale connections).
+     * Checked together at the end of the tick, so a bulk edit runs one split check per
+     * network instead of one per removed block.
+     */
+    private final LongOpenHashSet pendingSplitChecks = new LongOpenHashSet();
+
+    /**
+     * Nodes whose cable edges are not in the store yet (registered from a save made before
+     * edges were stored here, or placed this tick). Their edges are imported from the block
+     * entity when it loads (importEdges).
+     */
+    private final LongOpenHashSet unseededNodes = new LongOpenHashSet();
+
+    /**
+     * Runtime-only: crash journal of topology changes since the last save. Null until get()
+     * attached it (and while it is being replayed).
+     */
+    @Nullable
+    private RedstoneTopologyJournal journal;
+
+    /**
+     * Runtime-only: decides when the networks of this level are evaluated.
+     */
+    private final RedstoneNetworkScheduler scheduler = new RedstoneNetworkScheduler(this);
+
+    /**
+     * compactParents() runs once there are this many more parent links than live networks.
+     */
+    private static final int PARENT_COMPACTION_SLACK = 1024;
+
+    /**
+     * Returns the network registry for a level, creating it on first access.
+     *
+     * @param level The server level
+     * @return The registry stored in that level's data storage
+     */
+    public static RedstoneNetworkManager get(ServerLevel level) {
+        RedstoneNetworkManager manager = level.getDataStorage().computeIfAbsent(FACTORY, DATA_NAME);
+        if (manager.journal == null) {
+            manager.attachJournal(level);
+        }
+        return manager;
+    }
+
+    /**
+     * Returns the network registry for a level if it has one, without creating it.
+     * Levels that never had a chain block have no registry (and no file or journal).
+     *
+     * @param level The server level
+     * @return The registry, or null if the level has none
+     */
+    @Nullable
+    public static RedstoneNetworkManager getIfExists(ServerLevel level) {
+        RedstoneNetworkManager manager = level.getDataStorage().get(FACTORY, DATA_NAME);
+        if (manager != null && manager.journal == null) {
+            manager.attachJournal(level);
+        }
+        return manager;
+    }
+
+    /**
+     * Opens the crash journal next to the registry file and replays the changes that were
+     * made after the registry was last saved (the server stopped without saving).
+     */
+    private void attachJournal(ServerLevel level) {
+        Path dimensionFolder = DimensionType.getStorageFolder(level.dimension(),
+                level.getServer().getWorldPath(LevelResource.ROOT));
+        RedstoneTopologyJournal opened = new RedstoneTopologyJournal(
+                dimensionFolder.resolve("data").resolve(DATA_NAME + ".journal"));
+
+        int replayed = opened.replay(this::replay);
+        if (replayed > 0) {
+            RedstoneWire.LOGGER.info("Replayed {} chain topology changes in {} that were not saved yet",
+                    replayed, level.dimension().location());
+            setDirty();
+        }
+        journal = opened;
+    }
+
+    /**
+     * Hands the changes made since the last call to the crash journal's background writer.
+     * Called by the scheduler at the end of every level tick.
+     */
+    void flushJournal() {
+        if (journal != null) {
+            journal.flush();
+        }
+    }
+
+    public RedstoneNetworkScheduler getScheduler() {
+        return scheduler;
+    }
+
+    // ===== Node registration =====
+
+    /**
+     * Registers a chain block as a node, giving it its own single-member network.
+     * If the node is already registered, nothing changes.
+     *
+     * @param pos Position of the chain block
+     * @return The id of the network the node belongs to
+     */
+    public int register(BlockPos pos) {
+        return find(registerNode(pos.asLong()).handle);
+    }
+
+    /**
+     * Returns the node at a position, registering it first if needed. A new node is unseeded:
+     * its edges are imported from its block entity when it loads.
+     */
+    private Node registerNode(long key) {
+        Node node = nodes.get(key);
+        if (node != null) {
+            return node;
+        }
+
+        RedstoneNetwork network = createNetwork();
+        node = new Node(network.getId());
+        nodes.put(key, node);
+        linkInto(network, key, node);
+        unseededNodes.add(key);
+        setDirty();
+        return node;
+    }
+
+    /**
+     * Removes a chain block from the registry (the block was broken or replaced).
+     * <p>
+     * All of the node's edges are removed with it, and its former peers are queued for the
+     * split check at the end of the tick. The node is unlinked from its network; an emptied
+     * network is dropped.
+     *
+     * @param pos Position of the removed chain block
+     */
+    public void unregister(BlockPos pos) {
+        unregister(pos.asLong());
+    }
+
+    private void unregister(long key) {
+        Node node = nodes.get(key);
+        if (node == null) return;
+
+        for (int i = 0; i < node.edges.size(); i++) {
+            long peer = node.edges.getLong(i);
+            Node peerNode = nodes.get(peer);
+            if (peerNode != null) {
+                peerNode.edges.rem(key);
+            }
+            pendingSplitChecks.add(peer);
+        }
+        node.edges.clear();
+
+        RedstoneNetwork network = networks.get(find(node.handle));
+        if (network != null) {
+            network.removePorts(key);
+            unlink(network, key, node);
+            dropIfEmpty(network);
+            scheduler.markDirty(network.getId());
+        }
+        nodes.remove(key);
+        unseededNodes.remove(key);
+        record(RedstoneTopologyJournal.NODE_REMOVED, key, 0);
+        setDirty();
+    }
+
+    public boolean isRegistered(BlockPos pos) {
+        return nodes.containsKey(pos.asLong());
+    }
+
+    // ===== Network lookup =====
+
+    /**
+     * Resolves a network handle to the id of the network that currently owns it.
+     * <p>
+     * Follows union-find parent links up to the root, then points every id on the way
+     * directly at the root so the next lookup is a single step.
+     *
+     * @param id Any network id that was handed out by this registry
+     * @return The root id
+     */
+    public int find(int id) {
+        int root = id;
+        int parent;
+        while ((parent = parents.get(root)) != 0) {
+            root = parent;
+        }
+
+        int current = id;
+        while (current != root) {
+            int next = parents.get(current);
+            parents.put(current, root);
+            current = next;
+        }
+        return root;
+    }
+
+    /**
+     * Drops the union-find parent links once they pile up. Every merge adds a link and none
+     * is ever needed again once nothing holds the merged id, so without this the map would
+     * grow for as long as the server runs. Called by the scheduler at the end of the level tick.
+     * <p>
+     * Every holder of a handle is pointed at its root first:
+     * - Every node (loaded or not)
+     * - The loaded block entities whose handle changed (unloaded ones get theirs in onLoad)
+     * - The scheduler's queue of dirty networks
+     * After that no handle refers to a merged id, and all links can go. Queued periodic checks
+     * of merged ids are skipped when due, as before.
+     * <p>
+     * This walks every node, so it only runs after PARENT_COMPACTION_SLACK merges more than
+     * there are networks - the cost is spread over at least that many merges.
+     */
+    void compactParents(ServerLevel level) {
+        if (parents.size() <= networks.size() + PARENT_COMPACTION_SLACK) {
+            return;
+        }
+
+        BlockPos.MutableBlockPos cursor = new BlockPos.MutableBlockPos();
+        for (Long2ObjectMap.Entry<Node> entry : nodes.long2ObjectEntrySet()) {
+            Node node = entry.getValue();
+            int root = find(node.handle);
+            if (root == node.handle) continue;
+
+            node.handle = root;
+            cursor.set(entry.getLongKey());
+            if (level.isLoaded(cursor) && level.getBlockEntity(cursor) instanceof RedstoneChainEntity chain) {
+                chain.setNetworkHandle(root);
+            }
+        }
+        scheduler.resolveQueuedIds();
+        RedstoneWireMetrics.PARENT_LINKS_PRUNED.add(parents.size());
+        parents.clear();
+    }
+
+    /**
+     * @param id Any network handle
+     * @return The network owning that handle, or null if it no longer exists
+     */
+    @Nullable
+    public RedstoneNetwork getNetwork(int id) {
+        return networks.get(find(id));
+    }
+
+    /**
+     * @param pos Position of a chain block
+     * @return The network that block belongs to, or null if it is not registered
+     */
+    @Nullable
+    public RedstoneNetwork getNetworkAt(BlockPos pos) {
+        Node node = nodes.get(pos.asLong());
+        return node == null ? null : getNetwork(node.handle);
+    }
+
+    /**
+     * @param pos Position of a chain block
+     * @return The id of the network that block belongs to, or 0 if it is not registered
+     */
+    public int getNetworkId(BlockPos pos) {
+        return getNetworkId(pos.asLong());
+    }
+
+    private int getNetworkId(long key) {
+        Node node = nodes.get(key);
+        return node == null ? 0 : find(node.handle);
+    }
+
+    /**
+     * Returns a snapshot of all members of a network.
+     * A copy is returned so callers may change the world (and therefore the registry)
+     * while iterating.
+     *
+     * @param id Any network handle
+     * @return All chain block positions in that network, or an empty list
+     */
+    public List<BlockPos> getMembers(int id) {
+        LongList keys = getMemberKeys(id);
+        List<BlockPos> members = new ArrayList<>(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            members.add(BlockPos.of(keys.getLong(i)));
+        }
+        return members;
+    }
+
+    /**
+     * Same as getMembers(), as BlockPos.asLong() keys - no object per member.
+     *
+     * @param id Any network handle
+     * @return All chain block positions in that network, or an empty list
+     */
+    public LongList getMemberKeys(int id) {
+        RedstoneNetwork network = getNetwork(id);
+        if (network == null || network.getSize() == 0) {
+            return new LongArrayList();
+        }
+
+        LongArrayList members = new LongArrayList(network.getSize());
+        long head = network.getHead();
+        long current = head;
+        do {
+            members.add(current);
+            current = nodes.get(current).next;
+        } while (current != head);
+        return members;
+    }
+
+    // ===== Input ports =====
+
+    /**
+     * Re-reads one face of a chain block and updates its network's port index.
+     * Called from neighborChanged, so only the face that actually changed is read.
+     *
+     * @param level The level the block lives in
+     * @param pos   Position of the chain block
+     * @param face  Face whose neighbor changed
+     * @return true if the port's cached signal changed (the network needs evaluating)
+     */
+    public boolean refreshPort(ServerLevel level, BlockPos pos, Direction face) {
+        RedstoneNetwork network = getNetworkAt(pos);
+        if (network == null || !level.isLoaded(pos.relative(face))) {
+            // Unknown block, or a neighbor in an unloaded chunk: keep the last known signal
+            return false;
+        }
+        boolean changed = network.setPort(pos.asLong(), face, RedstoneNetwork.readPort(level, pos, face));
+        if (changed) {
+            setDirty();
+        }
+        return changed;
+    }
+
+    /**
+     * Re-reads all six faces of a chain block (it was just placed or loaded).
+     *
+     * @return true if any port's cached signal changed
+     */
+    public boolean refreshPorts(ServerLevel level, BlockPos pos) {
+        boolean changed = false;
+        for (Direction face : Direction.values()) {
+            changed |= refreshPort(level, pos, face);
+        }
+        return changed;
+    }
+
+    /**
+     * Re-reads every member of a network that has ports. Catches sources that changed
+     * without a neighbor update (e.g. a setBlock call without block updates), which
+     * neighborChanged never reports. Costs one pass over the ports, not over the members.
+     * Called by the scheduler when the network's periodic check is due.
+     */
+    void refreshNetworkPorts(ServerLevel level, RedstoneNetwork network) {
+        // Copied: re-reading may add or drop ports
+        long[] keys = network.getPorts().keySet().toLongArray();
+        BlockPos.MutableBlockPos cursor = new BlockPos.MutableBlockPos();
+        for (long key : keys) {
+            refreshPorts(level, cursor.set(key));
+        }
+    }
+
+    // ===== Topology changes =====
+
+    /**
+     * Stores a cable edge between two chain blocks and joins their networks.
+     * Blocks that are not registered yet are registered (unseeded).
+     *
+     * @param a First chain block
+     * @param b Second chain block
+     * @return true if the edge is new, false if it was already stored
+     */
+    public boolean connect(BlockPos a, BlockPos b) {
+        return connect(a.asLong(), b.asLong());
+    }
+
+    private boolean connect(long a, long b) {
+        if (a == b) return false;
+
+        Node nodeA = registerNode(a);
+        Node nodeB = registerNode(b);
+        if (nodeA.edges.contains(b)) {
+            return false;
+        }
+        nodeA.edges.add(b);
+        nodeB.edges.add(a);
+        union(a, b);
+        record(RedstoneTopologyJournal.EDGE_ADDED, a, b);
+        setDirty();
+        return true;
+    }
+
+    /**
+     * Removes the cable edge between two chain blocks. Both ends are queued for the split
+     * check at the end of the tick.
+     *
+     * @param a First chain block
+     * @param b Second chain block
+     * @return true if the edge was stored, false if there was nothing to remove
+     */
+    public boolean disconnect(BlockPos a, BlockPos b) {
+        return disconnect(a.asLong(), b.asLong());
+    }
+
+    private boolean disconnect(long a, long b) {
+        Node nodeA = nodes.get(a);
+        if (nodeA == null || !nodeA.edges.rem(b)) {
+            return false;
+        }
+        Node nodeB = nodes.get(b);
+        if (nodeB != null) {
+            nodeB.edges.rem(a);
+        }
+        pendingSplitChecks.add(a);
+        pendingSplitChecks.add(b);
+        record(RedstoneTopologyJournal.EDGE_REMOVED, a, b);
+        setDirty();
+        return true;
+    }
+
+    /**
+     * @param pos Position of a chain block
+     * @return The stored cable edges of that block (live list - do not modify), empty if
+     * it is not registered
+     */
+    public LongList getEdges(BlockPos pos) {
+        return edgesOf(pos.asLong());
+    }
+
+    /**
+     * Same as getEdges(BlockPos), keyed by BlockPos.asLong() - no BlockPos per call.
+     */
+    public LongList getEdges(long key) {
+        return edgesOf(key);
+    }
+
+    private LongList edgesOf(long key) {
+        Node node = nodes.get(key);
+        return node == null ? LongList.of() : node.edges;
+    }
+
+    /**
+     * Joins the networks of two chain blocks (an edge was added between them).
+     * <p>
+     * Union by size: the smaller network is attached below the larger one, its member
+     * list is spliced into the larger list, and the smaller network object is dropped.
+     * Both steps are constant time regardless of how big the networks are.
+     *
+     * @return The merged network, or null if either block is not registered
+     */
+    @Nullable
+    private RedstoneNetwork union(long a, long b) {
+        Node nodeA = nodes.get(a);
+        Node nodeB = nodes.get(b);
+        if (nodeA == null || nodeB == null) {
+            return null;
+        }
+
+        RedstoneNetwork larger = networks.get(find(nodeA.handle));
+        RedstoneNetwork smaller = networks.get(find(nodeB.handle));
+        if (larger == smaller) {
+            return larger;
+        }
+        if (larger.getSize() < smaller.getSize()) {
+            RedstoneNetwork swap = larger;
+            larger = smaller;
+            smaller = swap;
+        }
+
+        splice(larger, smaller);
+        smaller.transferPortsTo(larger);
+        larger.includeBounds(smaller);
+        larger.setSize(larger.getSize() + smaller.getSize());
+        parents.put(smaller.getId(), larger.getId());
+        networks.remove(smaller.getId());
+        scheduler.markDirty(larger.getId());
+        setDirty();
+        return larger;
+    }
+
+    /**
+     * Size the network would have if the two blocks were connected. Used to enforce
+     * Config.MAX_NETWORK_SIZE before a connection is made.
+     *
+     * @return The combined size; the current size if both are already in the same network.
+     * Unregistered blocks count as a network of one
+     */
+    public int getJoinedSize(BlockPos a, BlockPos b) {
+        RedstoneNetwork networkA = getNetworkAt(a);
+        RedstoneNetwork networkB = getNetworkAt(b);
+        int sizeA = networkA == null ? 1 : networkA.getSize();
+        if (networkA != null && networkA == networkB) {
+            return sizeA;
+        }
+        return sizeA + (networkB == null ? 1 : networkB.getSize());
+    }
+
+    /**
+     * Networks with more members than the given limit, largest first.
+     */
+    public List<RedstoneNetwork> getNetworksLargerThan(int limit) {
+        List<RedstoneNetwork> result = new ArrayList<>();
+        for (RedstoneNetwork network : networks.values()) {
+            if (network.getSize() > limit) {
+                result.add(network);
+            }
+        }
+        result.sort(Comparator.comparingInt(RedstoneNetwork::getSize).reversed());
+        return result;
+    }
+
+    /**
+     * Moves a set of chain blocks out of whatever networks they are in and into one
+     * brand-new network. Used when a removed connection splits a network.
+     * <p>
+     * Callers are responsible for updating the id handle of any loaded block entity
+     * among the moved blocks.
+     *
+     * @param members Positions to move, as BlockPos.asLong() keys (unregistered positions are ignored)
+     * @return The id of the new network
+     */
+    public int detach(LongCollection members) {
+        RedstoneNetwork target = createNetwork();
+        for (LongIterator it = members.iterator(); it.hasNext(); ) {
+            long key = it.nextLong();
+            Node node = nodes.get(key);
+            if (node == null) continue;
+
+            RedstoneNetwork source = networks.get(find(node.handle));
+            if (source == target) continue;
+            if (source != null) {
+                if (target.getSize() == 0) {
+                    target.inheritSignalFrom(source);
+                }
+                byte[] ports = source.removePorts(key);
+                if (ports != null) {
+                    target.addPorts(key, ports);
+                }
+                unlink(source, key, node);
+                dropIfEmpty(source);
+                scheduler.markDirty(source.getId());
+            }
+            node.handle = target.getId();
+            linkInto(target, key, node);
+        }
+        dropIfEmpty(target);
+        scheduler.markDirty(target.getId());
+        setDirty();
+        return target.getId();
+    }
+
+    /**
+     * Finds out whether removing connections split a network, and moves every piece that
+     * split off into its own new network.
+     * <p>
+     * Instead of walking the whole old network, this runs one breadth-first search per
+     * endpoint of the cut and advances them in turns, one block each:
+     * - If two searches run into each other, those endpoints are still connected, so the
+     *   two searches are merged and continue as one
+     * - If a search runs out of blocks first, it has seen its entire piece, and that piece
+     *   is no bigger than anything still being searched - it gets a new network id
+     * - As soon as only one search is left, we stop. Whatever it has not visited yet stays
+     *   in the old network, so the largest piece is never walked completely
+     * <p>
+     * Cutting one cable in a large grid therefore only costs about as much as the piece
+     * that actually broke off (or the distance around the cut, if nothing broke off).
+     * <p>
+     * Searches only enter blocks that are still in the endpoints' original network.
+     * Blocks whose edges are unknown are never entered: a search that reaches one becomes
+     * "dormant" - it may be connected to anything through that block, so it is never
+     * split off. Its endpoint is remembered and checked again once those blocks load
+     * (retryDeferredSplitChecks). Until then the network stays joined, which only means the
+     * pieces keep sharing power a little longer.
+     * <p>
+     * Callers must update the id handle of loaded block entities in the returned networks.
+     *
+     * @param endpoints  Blocks that lost a connection (all in the same network), as BlockPos.asLong() keys
+     * @param neighbours Returns the chain blocks a given (known) block is connected to
+     * @param loaded     Whether a block's edges are known and it may be visited
+     * @return Ids of the networks created for pieces that split off
+     */
+    public IntList splitDisconnected(LongCollection endpoints,
+                                     LongFunction<? extends LongList> neighbours,
+                                     LongPredicate loaded) {
+        IntList splitOff = new IntArrayList();
+        if (endpoints.isEmpty()) {
+            return splitOff;
+        }
+
+        int originalId = getNetworkId(endpoints.iterator().nextLong());
+        Long2ObjectMap<SplitSearch> owners = new Long2ObjectOpenHashMap<>();
+        List<SplitSearch> active = new ArrayList<>();
+        for (LongIterator it = endpoints.iterator(); it.hasNext(); ) {
+            long endpoint = it.nextLong();
+            if (originalId == 0 || getNetworkId(endpoint) != originalId || owners.containsKey(endpoint)) {
+                continue;
+            }
+            SplitSearch search = new SplitSearch(endpoint);
+            if (!loaded.test(endpoint)) {
+                search.queue.clear();
+                search.dormant = true;
+            }
+            owners.put(endpoint, search);
+            active.add(search);
+        }
+
+        while (active.size() > 1) {
+            for (int i = 0; i < active.size() && active.size() > 1; i++) {
+                SplitSearch search = active.get(i);
+
+                if (search.queue.isEmpty()) {
+                    if (search.dormant) {
+                        // Might still be connected through unloaded chunks - decide later
+                        deferredSplitChecks.add(search.members.getLong(0));
+                        setDirty();
+                    } else {
+                        // This search has seen its whole piece before the others finished
+                        splitOff.add(detach(search.members));
+                    }
+                    active.remove(i--);
+                    continue;
+                }
+
+                long current = search.queue.dequeueLong();
+                RedstoneWireMetrics.SPLIT_SEARCH_VISITS.increment();
+                // Indexed, not iterated: no iterator object per visited block
+                LongList edges = neighbours.apply(current);
+                for (int e = 0; e < edges.size(); e++) {
+                    long next = edges.getLong(e);
+                    if (getNetworkId(next) != originalId) continue;
+
+                    SplitSearch owner = owners.get(next);
+                    if (owner == null) {
+                        owners.put(next, search);
+                        if (loaded.test(next)) {
+                            search.add(next);
+                        } else {
+                            // Dormant edge: claim the block but don't look inside it
+                            search.members.add(next);
+                            search.dormant = true;
+                        }
+                    } else {
+                        owner = owner.resolve();
+                        if (owner != search) {
+                            // Two endpoints are still connected - continue as one search
+                            search = mergeSearches(search, owner, active);
+                        }
+                    }
+                }
+                i = active.indexOf(search);
+            }
+        }
+        return splitOff;
+    }
+
+    /**
+     * Runs the split check after edges were removed, and hands the new network ids to the
+     * loaded block entities of every piece that split off.
+     * <p>
+     * The search walks the stored edges, so it never reads the world; blocks in unloaded
+     * chunks simply keep their new id until they load.
+     *
+     * @param level     The level the blocks live in
+     * @param endpoints Blocks that just lost a connection
+     */
+    public void repairSplit(ServerLevel level, Collection<BlockPos> endpoints) {
+        LongArrayList keys = new LongArrayList(endpoints.size());
+        for (BlockPos pos : endpoints) {
+            keys.add(pos.asLong());
+        }
+        repairSplit(level, keys);
+    }
+
+    /**
+     * Same as repairSplit(ServerLevel, Collection), for endpoints given as BlockPos.asLong() keys.
+     */
+    public void repairSplit(ServerLevel level, LongCollection endpoints) {
+        BlockPos.MutableBlockPos cursor = new BlockPos.MutableBlockPos();
+        IntList splitOff = splitDisconnected(endpoints, this::edgesOf, key -> !unseededNodes.contains(key));
+
+        for (int i = 0; i < splitOff.size(); i++) {
+            int newNetworkId = splitOff.getInt(i);
+            LongList members = getMemberKeys(newNetworkId);
+            for (int m = 0; m < members.size(); m++) {
+                cursor.set(members.getLong(m));
+                if (level.isLoaded(cursor) && level.getBlockEntity(cursor) instanceof RedstoneChainEntity chain) {
+                    chain.setNetworkHandle(newNetworkId);
+                }
+            }
+        }
+    }
+
+    /**
+     * Re-runs split checks that were left undecided because of unseeded blocks.
+     * Called by the scheduler (at most once per tick) after chain blocks loaded.
+     * Checks that still reach unseeded blocks are simply deferred again.
+     */
+    void retryDeferredSplitChecks(ServerLevel level) {
+        if (deferredSplitChecks.isEmpty()) {
+            return;
+        }
+
+        LongArrayList endpoints = new LongArrayList(deferredSplitChecks);
+        deferredSplitChecks.clear();
+        setDirty();
+        // A deferred endpoint is the first block of a piece that may have been cut off, so
+        // even a lone one is checked (against the network head)
+        repairSplitsByNetwork(level, endpoints, true);
+    }
+
+    /**
+     * Queues the endpoints of a cut for the split check at the end of this tick.
+     * Endpoints that are unregistered by then (removed in the same tick) are ignored.
+     *
+     * @param endpoints Blocks that just lost a connection, as BlockPos.asLong() keys
+     */
+    public void queueSplitCheck(LongCollection endpoints) {
+        pendingSplitChecks.addAll(endpoints);
+    }
+
+    /**
+     * Runs the split checks queued during this tick, one per affected network.
+     * Called by the scheduler before networks are evaluated.
+     */
+    void runPendingSplitChecks(ServerLevel level) {
+        if (pendingSplitChecks.isEmpty()) {
+            return;
+        }
+
+        LongArrayList endpoints = new LongArrayList(pendingSplitChecks);
+        pendingSplitChecks.clear();
+        // If only one former neighbor of the removed blocks is left in a network, every piece
+        // that touched the removed blocks contains it - nothing can have split off
+        repairSplitsByNetwork(level, endpoints, false);
+    }
+
+    /**
+     * Groups endpoints by their current network and runs one split check per network.
+     *
+     * @param pairSingles Whether a network with a single endpoint is still checked (paired
+     *                    with the network head) or skipped
+     */
+    private void repairSplitsByNetwork(ServerLevel level, LongCollection endpoints, boolean pairSingles) {
+        Int2ObjectOpenHashMap<LongArrayList> byNetwork = new Int2ObjectOpenHashMap<>();
+        for (LongIterator it = endpoints.iterator(); it.hasNext(); ) {
+            long key = it.nextLong();
+            int id = getNetworkId(key);
+            if (id != 0) {
+                byNetwork.computeIfAbsent(id, k -> new LongArrayList()).add(key);
+            }
+        }
+
+        for (Int2ObjectMap.Entry<LongArrayList> entry : byNetwork.int2ObjectEntrySet()) {
+            LongArrayList group = entry.getValue();
+            if (group.size() == 1) {
+                if (!pairSingles) continue;
+                group.add(networks.get(entry.getIntKey()).getHead());
+            }
+            repairSplit(level, group);
+        }
+    }
+
+    boolean hasDeferredSplitChecks() {
+        return !deferredSplitChecks.isEmpty();
+    }
+
+    // ===== Chunk loading =====
+
+    /**
+     * Settles every chain block that loaded since the last tick, in one pass.
+     * Called by the scheduler; block entities only queue themselves in onLoad().
+     * <p>
+     * When a region loads (server start, teleport, a player joining next to a wired base),
+     * thousands of chain blocks load in the same tick. Handling them together means:
+     * 1. Each block's stored edges are checked once: a peer that is loaded but is no longer a
+     * chain block (the world was edited without breaking it) is unregistered
+     * 2. An unseeded block's edges are imported from its block entity (importEdges). Any other
+     * block's connections are simply replaced with the stored edges, so a chunk saved before
+     * or after the registry can never bring back a cut cable or lose a new one
+     * 3. Each block's six faces are read into the port index
+     * 4. Split checks that were waiting for unseeded blocks are retried once
+     * <p>
+     * Every touched network is marked dirty, so blocks that kept their last power while
+     * unloaded are reconciled in the same tick's evaluation, once per network.
+     *
+     * @param level  The level the blocks loaded in
+     * @param loaded Positions that loaded, as BlockPos.asLong() keys
+     */
+    void processLoadedNodes(ServerLevel level, LongCollection loaded) {
+        BlockPos.MutableBlockPos cursor = new BlockPos.MutableBlockPos();
+
+        for (LongIterator it = loaded.iterator(); it.hasNext(); ) {
+            long key = it.nextLong();
+            cursor.set(key);
+            // Removed or unloaded again before the end of the tick
+            if (!nodes.containsKey(key) || !level.isLoaded(cursor)
+                    || !(level.getBlockEntity(cursor) instanceof RedstoneChainEntity chain)) continue;
+
+            dropVanishedPeers(level, key);
+            if (unseededNodes.contains(key)) {
+                importEdges(level, key, chain);
+            }
+            chain.syncConnections(edgesOf(key));
+
+            RedstoneWireMetrics.LOADED_NODES_SETTLED.increment();
+            refreshPorts(level, cursor);
+            scheduler.markDirty(getNetworkId(key));
+        }
+
+        retryDeferredSplitChecks(level);
+    }
+
+    /**
+     * Unregisters the peers of a block that are loaded but are no longer chain blocks.
+     */
+    private void dropVanishedPeers(ServerLevel level, long key) {
+        LongList edges = edgesOf(key);
+        BlockPos.MutableBlockPos peer = new BlockPos.MutableBlockPos();
+        for (int i = edges.size() - 1; i >= 0; i--) {
+            peer.set(edges.getLong(i));
+            if (level.isLoaded(peer) && !(level.getBlockEntity(peer) instanceof RedstoneChainEntity)) {
+                unregister(edges.getLong(i));
+            }
+        }
+    }
+
+    /**
+     * Takes the edges of an unseeded block from its block entity, then marks it seeded.
+     * <p>
+     * The block entity's connections are only a claim, checked against what is known:
+     * 1. Stored edges the block does not claim are removed (they came from the other end)
+     * 2. A claimed edge to a loaded block is kept if that block claims it too
+     * 3. A claimed edge to an unloaded, unseeded block is kept - nothing better is known yet
+     * 4. A claimed edge to an unloaded, seeded block is kept only if the store already has
+     * it: that block's edges are authoritative, so the cable was cut while this chunk was
+     * not saved
+     */
+    private void importEdges(ServerLevel level, long key, RedstoneChainEntity chain) {
+        LongList claimed = chain.getConnectionKeys();
+        LongArrayList stored = new LongArrayList(edgesOf(key));
+        for (int i = 0; i < stored.size(); i++) {
+            if (!claimed.contains(stored.getLong(i))) {
+                disconnect(key, stored.getLong(i));
+            }
+        }
+
+        BlockPos.MutableBlockPos peer = new BlockPos.MutableBlockPos();
+        for (int i = 0; i < claimed.size(); i++) {
+            long other = claimed.getLong(i);
+            boolean keep;
+            if (level.isLoaded(peer.set(other))) {
+                keep = level.getBlockEntity(peer) instanceof RedstoneChainEntity otherChain
+                        && otherChain.getConnectionKeys().contains(key);
+            } else {
+                keep = !nodes.containsKey(other) || unseededNodes.contains(other) || stored.contains(other);
+            }
+            if (keep) {
+                connect(key, other);
+            }
+        }
+
+        unseededNodes.remove(key);
+        record(RedstoneTopologyJournal.NODE_ADDED, key, 0);
+        setDirty();
+    }
+
+    /**
+     * Merges two split searches, keeping the one that has seen more blocks.
+     *
+     * @return The surviving search
+     */
+    private static SplitSearch mergeSearches(SplitSearch a, SplitSearch b, List<SplitSearch> active) {
+        SplitSearch into = a.members.size() >= b.members.size() ? a : b;
+        SplitSearch from = into == a ? b : a;
+
+        while (!from.queue.isEmpty()) {
+            into.queue.enqueue(from.queue.dequeueLong());
+        }
+        into.members.addAll(from.members);
+        into.dormant |= from.dormant;
+        from.mergedInto = into;
+        active.remove(from);
+        return into;
+    }
+
+    // ===== Member list plumbing =====
+
+    private RedstoneNetwork createNetwork() {
+        RedstoneNetwork network = new RedstoneNetwork(nextNetworkId++);
+        networks.put(network.getId(), network);
+        scheduler.track(network);
+        return network;
+    }
+
+    private void dropIfEmpty(RedstoneNetwork network) {
+        if (network.getSize() == 0) {
+            networks.remove(network.getId());
+        }
+    }
+
+    /**
+     * Inserts a node into a network's circular member list, right after the head.
+     */
+    private void linkInto(RedstoneNetwork network, long key, Node node) {
+        if (network.getSize() == 0) {
+            node.next = key;
+            node.prev = key;
+            network.setHead(key);
+        } else {
+            long headKey = network.getHead();
+            Node headNode = nodes.get(headKey);
+            long afterKey = headNode.next;
+            Node afterNode = nodes.get(afterKey);
+            node.prev = headKey;
+            node.next = afterKey;
+            headNode.next = key;
+            afterNode.prev = key;
+        }
+        network.setSize(network.getSize() + 1);
+        network.includeInBounds(key);
+    }
+
+    /**
+     * Removes a node from a network's circular member list.
+     * Removing the last member leaves nothing to relink - the size simply drops to 0.
+     */
+    private void unlink(RedstoneNetwork network, long key, Node node) {
+        if (node.next != key) {
+            nodes.get(node.prev).next = node.next;
+            nodes.get(node.next).prev = node.prev;
+            if (network.getHead() == key) {
+                network.setHead(node.next);
+            }
+        }
+        node.next = key;
+        node.prev = key;
+        network.setSize(network.getSize() - 1);
+    }
+
+    /**
+     * Joins two circular member lists into one by swapping the "next" links of their heads.
+     * <pre>
+     *   into:  a → a2 → ... → a        from:  b → b2 → ... → b
+     *   after: a → b2 → ... → b → a2 → ... → a
+     * </pre>
+     */
+    private void splice(RedstoneNetwork into, RedstoneNetwork from) {
+        long headA = into.getHead();
+        long headB = from.getHead();
+        Node nodeA = nodes.get(headA);
+        Node nodeB = nodes.get(headB);
+        long afterA = nodeA.next;
+        long afterB = nodeB.next;
+
+        nodeA.next = afterB;
+        nodes.get(afterB).prev = headA;
+        nodeB.next = afterA;
+        nodes.get(afterA).prev = headB;
+    }
+
+    // ===== SERIALIZATION =====
+
+    @Override
+    public CompoundTag save(CompoundTag tag, HolderLookup.Provider registries) {
+        tag.putInt("NextNetworkId", nextNetworkId);
+
+        ListTag list = new ListTag();
+        for (RedstoneNetwork network : networks.values()) {
+            CompoundTag networkTag = new CompoundTag();
+            networkTag.putInt("Id", network.getId());
+            networkTag.putLongArray("Members", getMemberKeys(network.getId()).toLongArray());
+            networkTag.putLongArray("Ports", packPorts(network));
+            list.add(networkTag);
+        }
+        tag.put("Networks", list);
+        // Checks queued in the tick the level is saved in are retried like deferred ones
+        LongOpenHashSet splitChecks = new LongOpenHashSet(deferredSplitChecks);
+        splitChecks.addAll(pendingSplitChecks);
+        tag.putLongArray("DeferredSplitChecks", splitChecks.toLongArray());
+
+        // Every edge once, as pairs of BlockPos.asLong() keys (smaller key first)
+        LongArrayList edges = new LongArrayList();
+        for (Long2ObjectMap.Entry<Node> entry : nodes.long2ObjectEntrySet()) {
+            long key = entry.getLongKey();
+            LongArrayList nodeEdges = entry.getValue().edges;
+            for (int i = 0; i < nodeEdges.size(); i++) {
+                if (key < nodeEdges.getLong(i)) {
+                    edges.add(key);
+                    edges.add(nodeEdges.getLong(i));
+                }
+            }
+        }
+        tag.putLongArray("Edges", edges.toLongArray());
+        tag.putLongArray("UnseededNodes", unseededNodes.toLongArray());
+        return tag;
+    }
+
+    /**
+     * Writes the registry like SavedData does, but to a temporary file that then replaces
+     * the old one in a single move. A crash while saving leaves the previous file intact
+     * (and the crash journal still covers everything since). Once the new file is in place,
+     * the journal is emptied.
+     */
+    @Override
+    public void save(File file, HolderLookup.Provider registries) {
+        if (!isDirty()) {
+            return;
+        }
+
+        CompoundTag root = new CompoundTag();
+        root.put("data", save(new CompoundTag(), registries));
+        NbtUtils.addCurrentDataVersion(root);
+
+        Path target = file.toPath();
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try {
+            NbtIo.writeCompressed(root, temp);
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            // Stay dirty and keep the journal - the next save tries again
+            RedstoneWire.LOGGER.error("Could not save chain networks to {}", target, e);
+            return;
+        }
+
+        setDirty(false);
+        if (journal != null) {
+            journal.reset();
+        }
+    }
+
+    private static RedstoneNetworkManager load(CompoundTag tag, HolderLookup.Provider registries) {
+        RedstoneNetworkManager manager = new RedstoneNetworkManager();
+        manager.nextNetworkId = Math.max(1, tag.getInt("NextNetworkId"));
+
+        ListTag list = tag.getList("Networks", Tag.TAG_COMPOUND);
+        for (Tag t : list) {
+            CompoundTag networkTag = (CompoundTag) t;
+            RedstoneNetwork network = new RedstoneNetwork(networkTag.getInt("Id"));
+            manager.networks.put(network.getId(), network);
+            manager.nextNetworkId = Math.max(manager.nextNetworkId, network.getId() + 1);
+
+            for (long key : networkTag.getLongArray("Members")) {
+                if (manager.nodes.containsKey(key)) continue; // Never let one block sit in two networks
+
+                Node node = new Node(network.getId());
+                manager.nodes.put(key, node);
+                manager.linkInto(network, key, node);
+            }
+            manager.unpackPorts(network, networkTag.getLongArray("Ports"));
+            manager.dropIfEmpty(network);
+            manager.scheduler.track(network);
+        }
+        for (long key : tag.getLongArray("DeferredSplitChecks")) {
+            manager.deferredSplitChecks.add(key);
+        }
+
+        if (tag.contains("Edges", Tag.TAG_LONG_ARRAY)) {
+            long[] edges = tag.getLongArray("Edges");
+            for (int i = 0; i + 1 < edges.length; i += 2) {
+                Node a = manager.nodes.get(edges[i]);
+                Node b = manager.nodes.get(edges[i + 1]);
+                if (a == null || b == null || a.edges.contains(edges[i + 1])) continue;
+                a.edges.add(edges[i + 1]);
+                b.edges.add(edges[i]);
+            }
+            for (long key : tag.getLongArray("UnseededNodes")) {
+                if (manager.nodes.containsKey(key)) {
+                    manager.unseededNodes.add(key);
+                }
+            }
+        } else {
+            // Saved before edges were stored here: learn them from the block entities
+            manager.unseededNodes.addAll(manager.nodes.keySet());
+        }
+        return manager;
+    }
+
+    // ===== Crash journal =====
+
+    private void record(byte op, long a, long b) {
+        if (journal != null) {
+            journal.record(op, a, b);
+        }
+    }
+
+    /**
+     * Re-applies one journal record. Runs before the journal is attached, so nothing is
+     * recorded again.
+     */
+    private void replay(byte op, long a, long b) {
+        switch (op) {
+            case RedstoneTopologyJournal.NODE_ADDED -> {
+                registerNode(a);
+                unseededNodes.remove(a);
+            }
+            case RedstoneTopologyJournal.NODE_REMOVED -> unregister(a);
+            case RedstoneTopologyJournal.EDGE_ADDED -> connect(a, b);
+            case RedstoneTopologyJournal.EDGE_REMOVED -> disconnect(a, b);
+            default -> {
+            }
+        }
+    }
+
+    /**
+     * Packs a network's port index as pairs of longs: block position, then the six face
+     * signals in one byte each (NO_PORT = 0xFF).
+     */
+    private static long[] packPorts(RedstoneNetwork network) {
+        Long2ObjectMap<byte[]> ports = network.getPorts();
+        long[] packed = new long[ports.size() * 2];
+        int i = 0;
+        for (Long2ObjectMap.Entry<byte[]> entry : ports.long2ObjectEntrySet()) {
+            long faces = 0;
+            for (int face = 0; face < 6; face++) {
+                faces |= (entry.getValue()[face] & 0xFFL) << (face * 8);
+            }
+            packed[i++] = entry.getLongKey();
+            packed[i++] = faces;
+        }
+        return packed;
+    }
+
+    private void unpackPorts(RedstoneNetwork network, long[] packed) {
+        for (int i = 0; i + 1 < packed.length; i += 2) {
+            Node node = nodes.get(packed[i]);
+            // Ignore ports of blocks that ended up in another network
+            if (node == null || node.handle != network.getId()) continue;
+
+            byte[] faces = new byte[6];
+            for (int face = 0; face < 6; face++) {
+                faces[face] = (byte) (packed[i + 1] >>> (face * 8));
+            }
+            network.addPorts(packed[i], faces);
+        }
+    }
+
+    /**
+     * Registry entry for one chain block.
+     */
+    private static final class Node {
+        /**
+         * Network id handed out to this node. May be a non-root id; resolve with find().
+         */
+        int handle;
+        /**
+         * Neighbours in the circular member list of the node's network (BlockPos.asLong() keys).
+         */
+        long next;
+        long prev;
+        /**
+         * Cable edges of this node (BlockPos.asLong() keys). Stored on both ends.
+         */
+        final LongArrayList edges = new LongArrayList(2);
+
+        Node(int handle) {
+            this.handle = handle;
+        }
+    }
+
+    /**
+     * One breadth-first search started from an endpoint of a cut (see splitDisconnected).
+     */
+    private static final class SplitSearch {
+        final LongArrayFIFOQueue queue = new LongArrayFIFOQueue();
+        final LongArrayList members = new LongArrayList();
+        /**
+         * Set once this search reached a block in an unloaded chunk.
+         */
+        boolean dormant;
+        /**
+         * Set once this search was absorbed by another one.
+         */
+        SplitSearch mergedInto;
+
+        SplitSearch(long start) {
+            add(start);
+        }
+
+        void add(long key) {
+            queue.enqueue(key);
+            members.add(key);
+        }
+
+        SplitSearch resolve() {
+            SplitSearch search = this;
+            while (search.mergedInto != null) {
+                search = search.mergedInto;
+            }
+            return search;
+        }
+    }
+}
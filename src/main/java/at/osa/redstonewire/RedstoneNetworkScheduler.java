@@ -0,0 +1,409 @@
+package at.osa.redstonewire;
+
+import it.unimi.dsi.fastutil.ints.IntIterator;
+import it.unimi.dsi.fastutil.ints.IntLinkedOpenHashSet;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.ints.IntSet;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongLinkedOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import net.minecraft.core.BlockPos;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.server.level.ServerPlayer;
+import net.neoforged.neoforge.event.tick.LevelTickEvent;
+
+import java.util.*;
+
+/**
+ * Decides when chain networks are evaluated. There is one scheduler per ServerLevel,
+ * owned by that level's {@link RedstoneNetworkManager} and driven by the level tick event.
+ * <p>
+ * Chain blocks have no block entity ticker. Instead:
+ * - Anything that can change a network's power (topology changes, neighbor updates)
+ *   marks the network dirty, and every dirty network is evaluated exactly once at the
+ *   end of the level tick - no matter how many of its members were touched. Requests that
+ *   are folded into an already queued evaluation are counted in
+ *   RedstoneWireMetrics.EVALUATIONS_SAVED
+ * - Evaluations share a time budget per tick (Config.TICK_BUDGET_MICROS). Networks that do
+ *   not fit are carried over to the next tick, so a busy tick costs about the budget.
+ *   Carried-over evaluations are counted in RedstoneWireMetrics.EVALUATIONS_DEFERRED
+ * - While a budget is set, the queue is ranked before it is drained (see prioritize): networks
+ *   in force-loaded chunks first, then by distance from their bounding box to the nearest
+ *   player. A network that was carried over STARVATION_TICKS times in a row jumps the line,
+ *   so far-away machines wait a little under load but never indefinitely
+ * - The periodic safety-net update (Config.UPDATE_INTERVAL_TICKS) runs once per network,
+ *   not once per block. It re-reads the network's input ports before evaluating, so sources
+ *   that changed without a neighbor update are still picked up; members without ports are
+ *   not read. Each network gets a fixed offset within the interval derived from its id, so
+ *   thousands of networks are spread evenly across ticks instead of all re-checking on the
+ *   same one
+ * - Power changes are rate limited per network (Config.MAX_TRANSITIONS_PER_SECOND, see
+ *   RedstoneNetwork.admitTransition). A change that was held back is retried through the
+ *   periodic check queue as soon as it is allowed
+ * - The periodic interval backs off: every periodic check doubles it, up to
+ *   Config.MAX_UPDATE_INTERVAL_TICKS. Anything that marks the network dirty (neighbor or
+ *   connection changes) or an evaluation that changes its power resets it to the base
+ *   interval, so idle decorative wiring is checked about once a minute instead of once a second
+ * <p>
+ * A level with only idle chain blocks therefore costs nothing per tick except the
+ * occasional periodic check.
+ */
+public class RedstoneNetworkScheduler {
+
+    /**
+     * Ticks in a row a network may be carried over before it is evaluated ahead of
+     * everything else, regardless of where players are.
+     */
+    static final int STARVATION_TICKS = 20;
+
+    private final RedstoneNetworkManager manager;
+
+    /**
+     * Networks to evaluate at the end of the current tick.
+     * Ids are resolved to their current network when drained, so merged ids collapse.
+     */
+    private IntLinkedOpenHashSet dirty = new IntLinkedOpenHashSet();
+
+    /**
+     * Networks that were created since the last tick and have no periodic check yet.
+     */
+    private final List<RedstoneNetwork> untracked = new ArrayList<>();
+
+    /**
+     * Periodic checks, keyed by the game time they are due at.
+     */
+    private final TreeMap<Long, List<Integer>> periodicChecks = new TreeMap<>();
+
+    /**
+     * Game time the budget counters below belong to.
+     */
+    private long budgetTick = Long.MIN_VALUE;
+
+    /**
+     * Game time of the last scheduler tick. Used to reschedule periodic checks from
+     * markDirty(), which is called without a level.
+     */
+    private long lastTick = 0;
+
+    /**
+     * Nanoseconds spent on network evaluations during budgetTick.
+     */
+    private long spentNanos;
+
+    /**
+     * Chain blocks that loaded since the last tick, settled together in one pass.
+     */
+    private LongLinkedOpenHashSet loaded = new LongLinkedOpenHashSet();
+
+    RedstoneNetworkScheduler(RedstoneNetworkManager manager) {
+        this.manager = manager;
+    }
+
+    /**
+     * Level tick hook, registered on the NeoForge event bus.
+     * <p>
+     * After the networks ran, the topology changes of this tick are handed to the
+     * manager's crash journal (see RedstoneTopologyJournal), and the union-find links are
+     * pruned if they piled up (see RedstoneNetworkManager.compactParents).
+     */
+    public static void onLevelTick(LevelTickEvent.Post event) {
+        if (event.getLevel() instanceof ServerLevel level) {
+            // Levels without chain blocks have no registry - don't create one for them
+            RedstoneNetworkManager manager = RedstoneNetworkManager.getIfExists(level);
+            if (manager == null) return;
+            manager.getScheduler().tick(level);
+            manager.flushJournal();
+            manager.compactParents(level);
+        }
+    }
+
+    /**
+     * Starts the periodic safety-net checks for a newly created (or loaded) network.
+     */
+    void track(RedstoneNetwork network) {
+        untracked.add(network);
+    }
+
+    /**
+     * Queues a network for evaluation at the end of this tick.
+     *
+     * @param networkId Any handle of the network
+     */
+    public void markDirty(int networkId) {
+        if (networkId == 0) return;
+
+        if (!dirty.add(networkId)) {
+            RedstoneWireMetrics.EVALUATIONS_SAVED.increment();
+        }
+        RedstoneNetwork network = manager.getNetwork(networkId);
+        if (network != null) {
+            resetBackoff(network, lastTick);
+        }
+    }
+
+    /**
+     * Replaces the ids in the dirty queue with the ids of the networks that own them, so the
+     * manager can drop its union-find links (see RedstoneNetworkManager.compactParents).
+     */
+    void resolveQueuedIds() {
+        IntLinkedOpenHashSet resolved = new IntLinkedOpenHashSet(dirty.size());
+        for (IntIterator it = dirty.iterator(); it.hasNext(); ) {
+            resolved.add(manager.find(it.nextInt()));
+        }
+        dirty = resolved;
+    }
+
+    /**
+     * Queues a chain block that just loaded. However many blocks load in one tick,
+     * they are validated, joined and reconciled in one pass at the end of the tick
+     * (see RedstoneNetworkManager.processLoadedNodes).
+     */
+    void nodeLoaded(BlockPos pos) {
+        loaded.add(pos.asLong());
+    }
+
+    /**
+     * Evaluates a network right away instead of waiting for the end of the tick.
+     * <p>
+     * If the network is in the middle of its own update (applying the signal notified a
+     * neighbor that feeds back into one of its ports), it cannot be evaluated again right
+     * now; it is queued for the end of the tick instead, so the new port value is not lost.
+     *
+     * @param level     The level the network lives in
+     * @param networkId Any handle of the network
+     */
+    public void evaluateNow(ServerLevel level, int networkId) {
+        RedstoneNetwork network = manager.getNetwork(networkId);
+        if (network == null) return;
+
+        if (network.isUpdating()) {
+            markDirty(network.getId());
+            return;
+        }
+        if (isOverBudget(level.getGameTime())) {
+            // This tick's budget is used up - wait in line with everything else
+            RedstoneWireMetrics.EVALUATIONS_DEFERRED.increment();
+            markDirty(network.getId());
+            return;
+        }
+        // A neighbor changed, same as markDirty: back to the base periodic interval
+        resetBackoff(network, level.getGameTime());
+        evaluate(level, network);
+    }
+
+    /**
+     * Runs once per level tick:
+     * 1. Settles the chain blocks that loaded since the last tick (and retries split checks
+     *    that waited for their chunks), then runs the split checks queued by this tick's
+     *    removals - a bulk edit is handled as one batch
+     * 2. Gives networks created since the last tick their periodic check slot
+     * 3. Re-reads the input ports of every network whose periodic check is due and marks it dirty
+     * 4. Evaluates each dirty network once, in priority order, until the tick budget is used up.
+     *    The rest is carried over to the next tick
+     */
+    void tick(ServerLevel level) {
+        long now = level.getGameTime();
+        int interval = Config.getUpdateIntervalTicks();
+        lastTick = now;
+
+        if (!loaded.isEmpty()) {
+            LongLinkedOpenHashSet batch = loaded;
+            loaded = new LongLinkedOpenHashSet();
+            manager.processLoadedNodes(level, batch);
+        }
+        manager.runPendingSplitChecks(level);
+
+        for (RedstoneNetwork network : untracked) {
+            if (network.getNextCheckTick() < 0) {
+                schedulePeriodicCheck(network, now + 1 + jitter(network.getId(), interval));
+            }
+        }
+        untracked.clear();
+
+        while (!periodicChecks.isEmpty() && periodicChecks.firstKey() <= now) {
+            long due = periodicChecks.firstKey();
+            for (int id : periodicChecks.pollFirstEntry().getValue()) {
+                RedstoneNetwork network = manager.getNetwork(id);
+                // Skip entries of networks that were merged away or already rescheduled
+                if (network == null || network.getId() != id || network.getNextCheckTick() != due) continue;
+
+                manager.refreshNetworkPorts(level, network);
+                dirty.add(id);
+                // Back off; the evaluation resets this if the network's power changes
+                int backoff = (int) Math.min((long) Math.max(network.getCheckInterval(), interval) * 2,
+                        Config.getMaxUpdateIntervalTicks());
+                network.setCheckInterval(backoff);
+                schedulePeriodicCheck(network, now + backoff);
+            }
+        }
+
+        if (dirty.isEmpty()) {
+            return;
+        }
+
+        // Swap first: anything marked dirty while evaluating runs next tick
+        IntLinkedOpenHashSet toEvaluate = dirty;
+        dirty = new IntLinkedOpenHashSet();
+        IntSet evaluated = new IntOpenHashSet();
+        int[] order = prioritize(level, toEvaluate);
+        for (int i = 0; i < order.length; i++) {
+            // Always make progress: the first network of a tick runs even over budget
+            if (!evaluated.isEmpty() && isOverBudget(now)) {
+                carryOver(order, i);
+                return;
+            }
+
+            int id = order[i];
+            RedstoneNetwork network = manager.getNetwork(id);
+            if (network == null) continue;
+
+            if (evaluated.add(network.getId())) {
+                evaluate(level, network);
+            } else {
+                // Handle of a network that was merged into one we already evaluated
+                RedstoneWireMetrics.EVALUATIONS_SAVED.increment();
+            }
+        }
+    }
+
+    /**
+     * Orders this tick's dirty networks by how urgently players need them.
+     * <p>
+     * Ranking (lowest first):
+     * 1. Networks carried over STARVATION_TICKS times in a row (so nothing waits forever)
+     * 2. Networks whose bounding box overlaps a force-loaded chunk (machines that run unattended)
+     * 3. Everything else, by squared distance from the bounding box to the nearest player
+     * <p>
+     * The sort is stable, so networks of equal rank keep their queue order. Without a budget
+     * every network runs this tick anyway and the queue order is used as is.
+     *
+     * @return Network ids in the order they should be evaluated
+     */
+    private int[] prioritize(ServerLevel level, IntLinkedOpenHashSet ids) {
+        int[] order = ids.toIntArray();
+        if (order.length < 2 || Config.getTickBudgetMicros() <= 0) {
+            return order;
+        }
+
+        LongSet forcedChunks = level.getForcedChunks();
+        List<ServerPlayer> players = level.players();
+        double[] rank = new double[order.length];
+        for (int i = 0; i < order.length; i++) {
+            RedstoneNetwork network = manager.getNetwork(order[i]);
+            if (network == null) {
+                // Merged away or removed - skipped when drained, position does not matter
+                rank[i] = Double.MAX_VALUE;
+            } else if (network.getTicksDeferred() >= STARVATION_TICKS) {
+                rank[i] = -2;
+            } else if (isForceLoaded(network, forcedChunks)) {
+                rank[i] = -1;
+            } else {
+                double nearest = Double.MAX_VALUE;
+                for (ServerPlayer player : players) {
+                    nearest = Math.min(nearest, network.distanceToBoundsSqr(player.getX(), player.getY(), player.getZ()));
+                }
+                rank[i] = nearest;
+            }
+        }
+
+        it.unimi.dsi.fastutil.Arrays.mergeSort(0, order.length,
+                (a, b) -> Double.compare(rank[a], rank[b]),
+                (a, b) -> {
+                    int id = order[a];
+                    order[a] = order[b];
+                    order[b] = id;
+                    double r = rank[a];
+                    rank[a] = rank[b];
+                    rank[b] = r;
+                });
+        return order;
+    }
+
+    private static boolean isForceLoaded(RedstoneNetwork network, LongSet forcedChunks) {
+        for (LongIterator it = forcedChunks.iterator(); it.hasNext(); ) {
+            if (network.boundsIntersectChunk(it.nextLong())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Carries the networks that did not fit into this tick's budget over to the next tick,
+     * ahead of everything that was marked dirty meanwhile.
+     */
+    private void carryOver(int[] order, int from) {
+        IntLinkedOpenHashSet next = new IntLinkedOpenHashSet();
+        for (int i = from; i < order.length; i++) {
+            RedstoneNetwork network = manager.getNetwork(order[i]);
+            if (network != null && next.add(network.getId())) {
+                network.setTicksDeferred(network.getTicksDeferred() + 1);
+            }
+        }
+        RedstoneWireMetrics.EVALUATIONS_DEFERRED.add(next.size());
+        next.addAll(dirty);
+        dirty = next;
+    }
+
+    /**
+     * Whether evaluations already used up the budget of the given tick.
+     */
+    private boolean isOverBudget(long tick) {
+        long budgetMicros = Config.getTickBudgetMicros();
+        return budgetMicros > 0 && budgetTick == tick && spentNanos >= budgetMicros * 1000L;
+    }
+
+    private void evaluate(ServerLevel level, RedstoneNetwork network) {
+        long tick = level.getGameTime();
+        if (budgetTick != tick) {
+            budgetTick = tick;
+            spentNanos = 0;
+        }
+
+        RedstoneWireMetrics.NETWORK_EVALUATIONS.increment();
+        network.setTicksDeferred(0);
+        int signalBefore = network.getCachedInputSignal();
+        long start = System.nanoTime();
+        boolean again = network.update(level, manager);
+        spentNanos += System.nanoTime() - start;
+        if (network.getCachedInputSignal() != signalBefore) {
+            resetBackoff(network, tick);
+        }
+        long retryAt = network.getRateLimitedUntil();
+        if (retryAt > tick && network.getNextCheckTick() > retryAt) {
+            // Power change held back by the oscillation limit - look again once it is allowed
+            schedulePeriodicCheck(network, retryAt);
+        }
+        if (again) {
+            // Signal-loss delay still running, or an oversized network mid-update - look again next tick
+            dirty.add(network.getId());
+        }
+    }
+
+    /**
+     * Drops a network back to the base periodic interval. If its next periodic check is
+     * further away than that, it is moved forward (the old queue entry is skipped when due).
+     */
+    private void resetBackoff(RedstoneNetwork network, long now) {
+        if (network.getCheckInterval() == 0) return;
+
+        network.setCheckInterval(0);
+        long baseline = now + Config.getUpdateIntervalTicks();
+        if (network.getNextCheckTick() > baseline) {
+            schedulePeriodicCheck(network, baseline);
+        }
+    }
+
+    private void schedulePeriodicCheck(RedstoneNetwork network, long tick) {
+        network.setNextCheckTick(tick);
+        periodicChecks.computeIfAbsent(tick, t -> new ArrayList<>()).add(network.getId());
+    }
+
+    /**
+     * Spreads networks over the update interval: a fixed offset in [0, interval)
+     * derived from the network id (Fibonacci hashing so consecutive ids land far apart).
+     */
+    private static int jitter(int networkId, int interval) {
+        return Math.floorMod(networkId * 0x9E3779B9, interval);
+    }
+}
@@ -0,0 +1,167 @@
+package at.osa.redstonewire;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Append-only change journal of a level's chain topology (nodes and cable edges).
+ * <p>
+ * The RedstoneNetworkManager snapshot is only written when the level saves. Chunks with
+ * chain blocks are saved on their own schedule, so after a crash the snapshot would be
+ * older than some chunks. To close that gap, every topology change is also appended here:
+ * - Changes are buffered in memory and handed to a background writer once per tick (flush),
+ *   which appends them to the file and forces them to disk. The server thread never waits for
+ *   the disk, so a crash loses the current tick plus whatever the writer had not finished yet
+ * - When the manager snapshot was written successfully, the journal is emptied (reset). The
+ *   writer runs appends and resets in the order they were handed over, so a reset never
+ *   overtakes an older append, and a newer append always lands in the emptied file
+ * - On startup the journal is replayed on top of the snapshot (replay)
+ * <p>
+ * Records are fixed size: one op byte followed by two BlockPos.asLong() keys (the second is
+ * 0 for node ops). Every op sets state rather than toggling it ("edge a-b exists"), so
+ * replaying records that already made it into the snapshot - a crash between writing the
+ * snapshot and emptying the journal - is harmless. A record cut short by a crash ends the
+ * replay.
+ */
+final class RedstoneTopologyJournal {
+
+    static final byte NODE_ADDED = 1;
+    static final byte NODE_REMOVED = 2;
+    static final byte EDGE_ADDED = 3;
+    static final byte EDGE_REMOVED = 4;
+
+    private static final int RECORD_SIZE = 1 + 2 * Long.BYTES;
+
+    /**
+     * Shared by the journals of all levels. A single thread keeps every journal's file
+     * operations in order; it is a daemon so it never holds up a shutdown - the final
+     * level save writes a snapshot that covers anything still queued.
+     */
+    private static final ExecutorService WRITER = Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().name("Redstone Wire Journal").daemon().factory());
+
+    /**
+     * Receives replayed records.
+     */
+    @FunctionalInterface
+    interface Replayer {
+        void apply(byte op, long a, long b);
+    }
+
+    private final Path path;
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private final DataOutputStream pendingOut = new DataOutputStream(pending);
+
+    RedstoneTopologyJournal(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * Feeds every complete record in the journal file to the replayer, oldest first.
+     *
+     * @return The number of records replayed
+     */
+    int replay(Replayer replayer) {
+        if (!Files.exists(path)) {
+            return 0;
+        }
+
+        int count = 0;
+        try (InputStream file = Files.newInputStream(path);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(file))) {
+            while (true) {
+                byte op = in.readByte();
+                long a = in.readLong();
+                long b = in.readLong();
+                if (op < NODE_ADDED || op > EDGE_REMOVED) {
+                    RedstoneWire.LOGGER.warn("Unknown record {} in {}, ignoring the rest of the journal", op, path);
+                    break;
+                }
+                replayer.apply(op, a, b);
+                count++;
+            }
+        } catch (EOFException end) {
+            // End of file, or a record that was cut short by a crash
+        } catch (IOException e) {
+            RedstoneWire.LOGGER.error("Could not read topology journal {}", path, e);
+        }
+        return count;
+    }
+
+    /**
+     * Buffers one change. Written to disk by the next flush().
+     */
+    void record(byte op, long a, long b) {
+        try {
+            pendingOut.writeByte(op);
+            pendingOut.writeLong(a);
+            pendingOut.writeLong(b);
+        } catch (IOException e) {
+            // Writing to a ByteArrayOutputStream does not fail
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Hands the buffered changes to the background writer, which appends them to the journal
+     * file and forces them to disk. Returns right away.
+     */
+    void flush() {
+        if (pending.size() == 0) {
+            return;
+        }
+
+        byte[] records = pending.toByteArray();
+        pending.reset();
+        RedstoneWireMetrics.JOURNAL_RECORDS_WRITTEN.add(records.length / RECORD_SIZE);
+        WRITER.execute(() -> append(records));
+    }
+
+    /**
+     * Empties the journal after a snapshot containing all of its changes was written.
+     * The file is deleted by the background writer, after every earlier append.
+     */
+    void reset() {
+        pending.reset();
+        WRITER.execute(this::delete);
+    }
+
+    // Runs on the writer thread
+    private void append(byte[] records) {
+        try {
+            Files.createDirectories(path.getParent());
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                ByteBuffer buffer = ByteBuffer.wrap(records);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            // The manager is still dirty with these changes - the next snapshot covers them
+            RedstoneWire.LOGGER.error("Could not append to topology journal {}", path, e);
+        }
+    }
+
+    // Runs on the writer thread
+    private void delete() {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            RedstoneWire.LOGGER.error("Could not reset topology journal {}", path, e);
+        }
+    }
+}
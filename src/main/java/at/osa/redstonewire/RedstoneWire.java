@@ -123,6 +123,11 @@ public class RedstoneWire {
         // Do not add this line if there are no @SubscribeEvent-annotated functions in this class, like onServerStarting() below.
         NeoForge.EVENT_BUS.register(this);
 
+        // Evaluate dirty chain networks once per level tick
+        NeoForge.EVENT_BUS.addListener(RedstoneNetworkScheduler::onLevelTick);
+        // Register the /redstonewire command
+        NeoForge.EVENT_BUS.addListener(RedstoneWireCommands::onRegisterCommands);
+
         // Register the item to a creative tab
         modEventBus.addListener(this::addCreative);
 
@@ -5,7 +5,9 @@ import net.neoforged.api.distmarker.Dist;
 import net.neoforged.bus.api.IEventBus;
 import net.neoforged.fml.ModContainer;
 import net.neoforged.fml.common.Mod;
+import net.neoforged.fml.event.config.ModConfigEvent;
 import net.neoforged.fml.event.lifecycle.FMLClientSetupEvent;
+import net.neoforged.neoforge.common.NeoForge;
 import net.neoforged.neoforge.client.event.EntityRenderersEvent;
 import net.neoforged.neoforge.client.gui.ConfigurationScreen;
 import net.neoforged.neoforge.client.gui.IConfigScreenFactory;
@@ -19,6 +21,25 @@ public class RedstoneWireClient {
         modEventBus.addListener(RedstoneWireClient::onClientSetup);
         modEventBus.addListener(RedstoneWireClient::registerRenderers);
 
+        // Cached cable meshes depend on the cable config, the level they were drawn in and the
+        // connections of the chain block that draws them
+        modEventBus.addListener(ModConfigEvent.Loading.class, CableMeshCache::onConfigChanged);
+        modEventBus.addListener(ModConfigEvent.Reloading.class, CableMeshCache::onConfigChanged);
+        NeoForge.EVENT_BUS.addListener(CableMeshCache::onLevelUnload);
+        NeoForge.EVENT_BUS.addListener(CableMeshCache::onConnectionsChanged);
+
+        // Cables baked into chunk sections, re-meshed only when a cable or its power changes
+        modEventBus.addListener(ModConfigEvent.Reloading.class, CableSectionGeometry::onConfigChanged);
+        NeoForge.EVENT_BUS.addListener(CableSectionGeometry::onAddSectionGeometry);
+        NeoForge.EVENT_BUS.addListener(CableSectionGeometry::onLevelUnload);
+        NeoForge.EVENT_BUS.addListener(CableSectionGeometry::onChainConnectionsChanged);
+        NeoForge.EVENT_BUS.addListener(CableSectionGeometry::onChainRemoved);
+        NeoForge.EVENT_BUS.addListener(CableSectionGeometry::onChainPowerChanged);
+
+        // Per-frame cable culling counts, shown on the F3 screen
+        NeoForge.EVENT_BUS.addListener(RedstoneChainRenderer::onRenderFrame);
+        NeoForge.EVENT_BUS.addListener(RedstoneChainRenderer::onDebugText);
+
         // Allows NeoForge to create a config screen for this mod's configs.
         // The config screen is accessed by going to the Mods screen > clicking on your mod > clicking on config.
         // Do not forget to add translations for your config options to the en_us.json file.
@@ -0,0 +1,64 @@
+package at.osa.redstonewire;
+
+import com.mojang.brigadier.CommandDispatcher;
+import net.minecraft.commands.CommandSourceStack;
+import net.minecraft.commands.Commands;
+import net.minecraft.core.BlockPos;
+import net.minecraft.network.chat.Component;
+import net.neoforged.neoforge.event.RegisterCommandsEvent;
+
+import java.util.List;
+
+/**
+ * Server commands of the mod.
+ * <p>
+ * /redstonewire stats        - prints every RedstoneWireMetrics counter
+ * /redstonewire stats reset  - sets every counter back to 0
+ * /redstonewire oversized    - lists the networks of the current dimension that are larger
+ *                              than Config.MAX_NETWORK_SIZE (updated over several ticks)
+ * <p>
+ * All require permission level 2 (operators).
+ */
+public class RedstoneWireCommands {
+
+    /**
+     * Command registration hook, registered on the NeoForge event bus.
+     */
+    public static void onRegisterCommands(RegisterCommandsEvent event) {
+        register(event.getDispatcher());
+    }
+
+    private static void register(CommandDispatcher<CommandSourceStack> dispatcher) {
+        dispatcher.register(Commands.literal("redstonewire")
+                .requires(source -> source.hasPermission(2))
+                .then(Commands.literal("stats")
+                        .executes(context -> {
+                            CommandSourceStack source = context.getSource();
+                            for (RedstoneWireMetrics.Counter counter : RedstoneWireMetrics.getCounters()) {
+                                source.sendSuccess(() -> Component.literal(counter.getName() + ": " + counter.get()), false);
+                            }
+                            return RedstoneWireMetrics.getCounters().size();
+                        })
+                        .then(Commands.literal("reset")
+                                .executes(context -> {
+                                    RedstoneWireMetrics.resetAll();
+                                    context.getSource().sendSuccess(() -> Component.literal("Redstone wire stats reset"), true);
+                                    return 1;
+                                })))
+                .then(Commands.literal("oversized")
+                        .executes(context -> {
+                            CommandSourceStack source = context.getSource();
+                            int limit = Config.getMaxNetworkSize();
+                            List<RedstoneNetwork> oversized = RedstoneNetworkManager.get(source.getLevel())
+                                    .getNetworksLargerThan(limit);
+                            source.sendSuccess(() -> Component.literal(oversized.size()
+                                    + " network(s) larger than " + limit + " blocks"), false);
+                            for (RedstoneNetwork network : oversized) {
+                                source.sendSuccess(() -> Component.literal("#" + network.getId() + ": "
+                                        + network.getSize() + " blocks near "
+                                        + BlockPos.of(network.getHead()).toShortString()), false);
+                            }
+                            return oversized.size();
+                        })));
+    }
+}
@@ -0,0 +1,157 @@
+package at.osa.redstonewire;
+
+import net.minecraft.core.BlockPos;
+import net.minecraft.world.level.Level;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Server-wide counters that show how much work the chain networks are doing.
+ * <p>
+ * Counters are plain longs: they are only ever touched from the server thread.
+ * They are runtime-only (reset on restart) and can be read and reset in game with
+ * the /redstonewire stats command (see RedstoneWireCommands).
+ * <p>
+ * To add a counter, declare another register(...) constant below - the command picks it up
+ * automatically.
+ */
+public final class RedstoneWireMetrics {
+
+    private static final List<Counter> COUNTERS = new ArrayList<>();
+
+    /**
+     * Networks that were actually evaluated (input looked up, signal applied).
+     */
+    public static final Counter NETWORK_EVALUATIONS = register("networkEvaluations");
+
+    /**
+     * Evaluation requests that were folded into an evaluation that was already queued
+     * for the same network in the same tick.
+     */
+    public static final Counter EVALUATIONS_SAVED = register("evaluationsSaved");
+
+    /**
+     * Neighbor updates sent after network power changes.
+     */
+    public static final Counter NEIGHBOR_NOTIFICATIONS = register("neighborNotifications");
+
+    /**
+     * Neighbor updates that were not sent because the neighbor was air, another chain block,
+     * or was already notified from another block of the same network.
+     */
+    public static final Counter NEIGHBOR_NOTIFICATIONS_SKIPPED = register("neighborNotificationsSkipped");
+
+    /**
+     * Network evaluations pushed to the next tick because the tick budget
+     * (Config.TICK_BUDGET_MICROS) was used up.
+     */
+    public static final Counter EVALUATIONS_DEFERRED = register("evaluationsDeferred");
+
+    /**
+     * Network power changes held back because the network exceeded
+     * Config.MAX_TRANSITIONS_PER_SECOND.
+     */
+    public static final Counter TRANSITIONS_RATE_LIMITED = register("transitionsRateLimited");
+
+    /**
+     * Chain blocks settled by the load-time batch (one per block that was placed or loaded).
+     */
+    public static final Counter LOADED_NODES_SETTLED = register("loadedNodesSettled");
+
+    /**
+     * Blocks visited by split checks after connections were cut or blocks were removed.
+     */
+    public static final Counter SPLIT_SEARCH_VISITS = register("splitSearchVisits");
+
+    /**
+     * Connections stored in a chain block that were dropped on load because the level's
+     * topology store does not have them (the cable was cut while the chunk was unloaded, or
+     * the target is no longer a chain block).
+     */
+    public static final Counter STALE_CONNECTIONS_DROPPED = register("staleConnectionsDropped");
+
+    /**
+     * Chunks that had no unsaved changes until redstone_wire changed persisted data in them
+     * (chain connections, or chain block power). Each of these is one extra chunk written
+     * by the next save.
+     */
+    public static final Counter CHUNKS_MARKED_UNSAVED = register("chunksMarkedUnsaved");
+
+    /**
+     * Topology changes (nodes and cable edges) handed to the crash journal
+     * (see RedstoneTopologyJournal).
+     */
+    public static final Counter JOURNAL_RECORDS_WRITTEN = register("journalRecordsWritten");
+
+    /**
+     * Union-find parent links dropped after every handle was pointed at its root network
+     * (see RedstoneNetworkManager.compactParents).
+     */
+    public static final Counter PARENT_LINKS_PRUNED = register("parentLinksPruned");
+
+    private RedstoneWireMetrics() {
+    }
+
+    /**
+     * Counts CHUNKS_MARKED_UNSAVED if the chunk at the given position has no unsaved changes
+     * yet. Call right before changing persisted data there.
+     */
+    static void recordChunkWrite(Level level, BlockPos pos) {
+        if (!level.isClientSide && !level.getChunkAt(pos).isUnsaved()) {
+            CHUNKS_MARKED_UNSAVED.increment();
+        }
+    }
+
+    private static Counter register(String name) {
+        Counter counter = new Counter(name);
+        COUNTERS.add(counter);
+        return counter;
+    }
+
+    /**
+     * @return All counters, in declaration order
+     */
+    public static List<Counter> getCounters() {
+        return Collections.unmodifiableList(COUNTERS);
+    }
+
+    public static void resetAll() {
+        for (Counter counter : COUNTERS) {
+            counter.reset();
+        }
+    }
+
+    /**
+     * One named, monotonically increasing counter.
+     */
+    public static final class Counter {
+        private final String name;
+        private long value;
+
+        private Counter(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long get() {
+            return value;
+        }
+
+        public void increment() {
+            value++;
+        }
+
+        public void add(long amount) {
+            value += amount;
+        }
+
+        void reset() {
+            value = 0;
+        }
+    }
+}
@@ -1,12 +1,20 @@
 package tests;
 
+import at.osa.redstonewire.CableMesh;
+import at.osa.redstonewire.RedstoneChainBlock;
+import at.osa.redstonewire.RedstoneNetworkManager;
 import at.osa.redstonewire.RedstoneWire;
+import at.osa.redstonewire.RedstoneWireMetrics;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
 import net.minecraft.world.item.ItemStack;
 import net.minecraft.gametest.framework.GameTest;
 import net.minecraft.core.BlockPos;
 import net.minecraft.gametest.framework.GameTestHelper;
+import net.minecraft.world.level.block.Blocks;
 import net.minecraft.world.level.block.LeverBlock;
 import net.neoforged.neoforge.gametest.GameTestHolder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
 import static tests.TestHelpers.*;
 
@@ -19,6 +27,7 @@ import static tests.TestHelpers.*;
 // 4. run /test create <classname>.<testname>
 @GameTestHolder("redstone_wire")
 public class SimpleGameTests {
+    private static final Logger LOGGER = LogManager.getLogger();
 
     @GameTest
     public static void coordinatesTest(GameTestHelper helper) {
@@ -120,4 +129,231 @@ public class SimpleGameTests {
                 .and("Test succeeds", helper::succeed);
     }
 
+    // Same structure as leverinputoutputtest: the output chain at (3,2,3) is surrounded by
+    // redstone wire on all four sides. A lamp is put on top of it and a third chain on top of
+    // the lamp, so the lamp is a neighbor of two chain blocks of the same network.
+    //
+    // Test actions run after the level tick, where the scheduler evaluates networks. So the
+    // network is evaluated from the test action itself (evaluateNow, the same call
+    // immediateNeighborResponse uses). The chains, the lamp and the wires are checked in
+    // that same action, and no other test can add to the counters in between.
+    @GameTest(template = "leverinputoutputtest")
+    public static void networkOutputSameTickTest(GameTestHelper helper) {
+        var inputChainBlockPosition = new BlockPos(1, 2, 1);
+        var outputChainBlockPosition = new BlockPos(3, 2, 3);
+        var redstoneLampPosition = new BlockPos(3, 3, 3);
+        var topChainBlockPosition = new BlockPos(3, 4, 3);
+        var leverPosition = new BlockPos(0, 2, 1);
+        var redstoneWirePositions = new BlockPos[]{
+                new BlockPos(2, 2, 3), new BlockPos(4, 2, 3), new BlockPos(3, 2, 2), new BlockPos(3, 2, 4)
+        };
+        var chainPositions = new BlockPos[]{inputChainBlockPosition, outputChainBlockPosition, topChainBlockPosition};
+
+        new SpecFlow(helper)
+                .given("A lamp on the output chain and a third chain on the lamp", () -> {
+                    helper.setBlock(redstoneLampPosition, Blocks.REDSTONE_LAMP);
+                    helper.setBlock(topChainBlockPosition, RedstoneWire.REDSTONE_CHAIN_BLOCK.get());
+                })
+                .and("All three chains are connected", () -> {
+                    connectChains(helper, inputChainBlockPosition, outputChainBlockPosition);
+                    connectChains(helper, outputChainBlockPosition, topChainBlockPosition);
+                    helper.assertTrue(getNetworkSize(helper, inputChainBlockPosition) == 3, "Chains are not one network");
+                    for (BlockPos wire : redstoneWirePositions) {
+                        assertRedstoneWirePowered(helper, wire, false);
+                    }
+                })
+                .when("I pull the lever and the network is evaluated, the lamp and wires respond in that same tick", () -> {
+                    long gameTime = helper.getLevel().getGameTime();
+                    // Every non-air, non-chain block around the three chains, counted once
+                    int uniqueNeighbors = countUniqueNeighbors(helper, chainPositions);
+                    long notifiedBefore = RedstoneWireMetrics.NEIGHBOR_NOTIFICATIONS.get();
+                    long skippedBefore = RedstoneWireMetrics.NEIGHBOR_NOTIFICATIONS_SKIPPED.get();
+
+                    helper.pullLever(leverPosition);
+                    var manager = RedstoneNetworkManager.get(helper.getLevel());
+                    manager.getScheduler().evaluateNow(helper.getLevel(),
+                            manager.getNetworkId(helper.absolutePos(inputChainBlockPosition)));
+
+                    for (BlockPos chain : chainPositions) {
+                        helper.assertBlockProperty(chain, RedstoneChainBlock.POWER, 15);
+                    }
+                    assertRedstoneLampIsLit(helper, redstoneLampPosition);
+                    for (BlockPos wire : redstoneWirePositions) {
+                        assertRedstoneWirePowered(helper, wire, true);
+                    }
+                    helper.assertTrue(helper.getLevel().getGameTime() == gameTime, "The game ticked during the check");
+
+                    // Three chains changed: 18 faces. The lamp is shared and the air faces need nothing
+                    long notified = RedstoneWireMetrics.NEIGHBOR_NOTIFICATIONS.get() - notifiedBefore;
+                    long skipped = RedstoneWireMetrics.NEIGHBOR_NOTIFICATIONS_SKIPPED.get() - skippedBefore;
+                    helper.assertValueEqual(notified, (long) uniqueNeighbors, "neighbor notifications");
+                    helper.assertValueEqual(skipped, 18L - uniqueNeighbors, "skipped neighbor notifications");
+                })
+                .and("Test succeeds", helper::succeed);
+    }
+
+    // Benchmarks the network registry itself on a standalone RedstoneNetworkManager (no level,
+    // no journal, no block entities): a 64x64 grid of nodes joined to its four neighbours is
+    // built, walked, and cut in two halves. Each round uses a fresh manager; the first rounds
+    // only warm up the JIT. The numbers are logged, and only the resulting networks are asserted.
+    @GameTest
+    public static void networkStorageBenchmark(GameTestHelper helper) {
+        int size = 64;
+        int nodes = size * size;
+        int warmupRounds = 3;
+        int measuredRounds = 10;
+
+        new SpecFlow(helper)
+                .when("I build, walk and cut a " + nodes + " node grid " + (warmupRounds + measuredRounds) + " times", () -> {
+                    var grid = new BlockPos[size][size];
+                    for (int x = 0; x < size; x++) {
+                        for (int z = 0; z < size; z++) {
+                            grid[x][z] = new BlockPos(x, 0, z);
+                        }
+                    }
+
+                    long bytesPerBuild = 0, walkNanos = 0, splitNanos = 0, splitBytes = 0, visits = 0;
+                    for (int round = 0; round < warmupRounds + measuredRounds; round++) {
+                        var manager = new RedstoneNetworkManager();
+                        long built = measureAllocatedBytes(helper, () -> {
+                            for (int x = 0; x < size; x++) {
+                                for (int z = 0; z < size; z++) {
+                                    if (x + 1 < size) manager.connect(grid[x][z], grid[x + 1][z]);
+                                    if (z + 1 < size) manager.connect(grid[x][z], grid[x][z + 1]);
+                                }
+                            }
+                        });
+                        helper.assertValueEqual(manager.getNetworkAt(grid[0][0]).getSize(), nodes, "grid network size");
+
+                        long walkStart = System.nanoTime();
+                        var members = manager.getMemberKeys(manager.getNetworkId(grid[0][0]));
+                        long walked = System.nanoTime() - walkStart;
+                        helper.assertValueEqual(members.size(), nodes, "walked members");
+
+                        // Cut every edge between x=31 and x=32, then split
+                        var endpoints = new LongArrayList();
+                        for (int z = 0; z < size; z++) {
+                            manager.disconnect(grid[size / 2 - 1][z], grid[size / 2][z]);
+                            endpoints.add(grid[size / 2 - 1][z].asLong());
+                            endpoints.add(grid[size / 2][z].asLong());
+                        }
+                        long visitsBefore = RedstoneWireMetrics.SPLIT_SEARCH_VISITS.get();
+                        long[] splitTime = new long[1];
+                        long split = measureAllocatedBytes(helper, () -> {
+                            long start = System.nanoTime();
+                            manager.splitDisconnected(endpoints, manager::getEdges, key -> true);
+                            splitTime[0] = System.nanoTime() - start;
+                        });
+                        helper.assertValueEqual(manager.getNetworkAt(grid[0][0]).getSize(), nodes / 2, "left half");
+                        helper.assertValueEqual(manager.getNetworkAt(grid[size - 1][0]).getSize(), nodes / 2, "right half");
+
+                        if (round >= warmupRounds) {
+                            bytesPerBuild += built;
+                            walkNanos += walked;
+                            splitNanos += splitTime[0];
+                            splitBytes += split;
+                            visits += RedstoneWireMetrics.SPLIT_SEARCH_VISITS.get() - visitsBefore;
+                        }
+                    }
+
+                    LOGGER.info("Network storage benchmark, {} nodes, average of {} rounds: {} bytes allocated per node "
+                                    + "while building, {} ns per member walked, split: {} visits, {} ns and {} bytes allocated per visit",
+                            nodes, measuredRounds,
+                            bytesPerBuild / measuredRounds / nodes,
+                            String.format("%.1f", walkNanos / (double) measuredRounds / nodes),
+                            visits / measuredRounds,
+                            String.format("%.1f", splitNanos / (double) visits),
+                            String.format("%.1f", splitBytes / (double) visits));
+                })
+                .and("Test succeeds", helper::succeed);
+    }
+
+    // Empty 32x3x32 box. A 32x32 slab of chain blocks is placed and cut with /fill, and the
+    // network work of both edits is read from RedstoneWireMetrics. Other tests may run at the
+    // same time and add to the counters, so the bounds leave some room for that.
+    // - Placement: every block is settled once, in one batch
+    // - Cut: the x=16 column is one batch of 64 endpoints. The searches advance in turns and
+    //   each right piece (15 blocks) runs out after 15 visits; by then every left search has
+    //   made 15 visits as well, and one more round merges them along the x=0 column. That is
+    //   at most 32 x 15 x 2 + 32 = 992 visits, below the 1024 blocks of the slab - a rescan
+    //   of the whole network for the cut would already exceed it
+    @GameTest(template = "bulkeditslab")
+    public static void bulkEditSlabTest(GameTestHelper helper) {
+        int size = 32;
+        int blocks = size * size;
+        var corner = new BlockPos(0, 1, 0);
+        var oppositeCorner = new BlockPos(size - 1, 1, size - 1);
+        long[] baseline = new long[1];
+
+        new SpecFlow(helper)
+                .given("I /fill a 32x32 slab with Redstone Chain blocks", () -> {
+                    baseline[0] = RedstoneWireMetrics.LOADED_NODES_SETTLED.get();
+                    runCommand(helper, "fill %s %s redstone_wire:redstone_chain", corner, oppositeCorner);
+                })
+                .then("Every block was settled once, in one batch", () -> {
+                    assertBlockNameAtPosition(helper, "Redstone Chain", oppositeCorner);
+                    long settled = RedstoneWireMetrics.LOADED_NODES_SETTLED.get() - baseline[0];
+                    helper.assertTrue(settled >= blocks && settled <= 2L * blocks,
+                            "Expected about " + blocks + " settled blocks, got " + settled);
+                })
+                .when("I wire every row along x and join the rows along the x=0 column", () -> {
+                    for (int z = 0; z < size; z++) {
+                        for (int x = 0; x < size - 1; x++) {
+                            connectChains(helper, new BlockPos(x, 1, z), new BlockPos(x + 1, 1, z));
+                        }
+                        if (z > 0) {
+                            connectChains(helper, new BlockPos(0, 1, z - 1), new BlockPos(0, 1, z));
+                        }
+                    }
+                })
+                .then("The slab is a single network", () -> {
+                    helper.assertTrue(getNetworkSize(helper, corner) == blocks, "Slab is not one network");
+                    baseline[0] = RedstoneWireMetrics.SPLIT_SEARCH_VISITS.get();
+                })
+                .when("I /fill the x=16 column with air", () ->
+                        runCommand(helper, "fill %s %s air", new BlockPos(16, 1, 0), new BlockPos(16, 1, size - 1)))
+                .then("Every row is cut in two, without walking the whole slab", () -> {
+                    helper.assertTrue(getNetworkSize(helper, corner) == 16 * size,
+                            "Left half should still be one network");
+                    for (int z = 0; z < size; z++) {
+                        helper.assertTrue(getNetworkSize(helper, new BlockPos(size - 1, 1, z)) == size - 17,
+                                "Right half of row " + z + " should be a network of its own");
+                    }
+                    long visits = RedstoneWireMetrics.SPLIT_SEARCH_VISITS.get() - baseline[0];
+                    helper.assertTrue(visits < blocks,
+                            "Split checks visited " + visits + " blocks for a " + blocks + " block slab");
+                })
+                .and("Test succeeds", helper::succeed);
+    }
+
+    // Cable meshes are built every frame, so CableMesh must not allocate. It has no client
+    // dependencies and runs here on the server thread in an empty 3x3x3 box.
+    // One cable with default settings is 8 segments x 12 sides = 576 vertices.
+    @GameTest
+    public static void cableMeshAllocationTest(GameTestHelper helper) {
+        int cables = 1000;
+        int[] vertices = new int[1];
+        CableMesh.VertexSink sink = (x, y, z, nx, ny, nz, segment) -> vertices[0]++;
+        Runnable buildCables = () -> {
+            for (int i = 0; i < cables; i++) {
+                CableMesh.build(0.5f, 1.0f, 0.5f, 12.5f + i % 7, 3.0f, -4.5f, 8, 12, 0.03f, -1.0f, sink);
+            }
+        };
+        long[] allocated = new long[1];
+
+        new SpecFlow(helper)
+                .given("The mesh code has run once (ring tables are created on first use)", buildCables::run)
+                .when("I build the mesh of " + cables + " cables", () -> {
+                    vertices[0] = 0;
+                    allocated[0] = measureAllocatedBytes(helper, buildCables);
+                })
+                .then("Every cable got its full mesh", () ->
+                        helper.assertTrue(vertices[0] == cables * CableMesh.vertexCount(8, 12),
+                                "Expected " + cables * CableMesh.vertexCount(8, 12) + " vertices, got " + vertices[0]))
+                .and("Nothing was allocated", () ->
+                        // Less than one byte per cable: the measurement itself may cost a few bytes
+                        helper.assertTrue(allocated[0] < cables,
+                                "Building " + cables + " cable meshes allocated " + allocated[0] + " bytes"))
+                .and("Test succeeds", helper::succeed);
+    }
 }
@@ -1,6 +1,9 @@
 package tests;
 
+import at.osa.redstonewire.RedstoneChainBlock;
 import at.osa.redstonewire.RedstoneChainEntity;
+import at.osa.redstonewire.RedstoneNetwork;
+import at.osa.redstonewire.RedstoneNetworkManager;
 import net.minecraft.core.BlockPos;
 import net.minecraft.core.Direction;
 import net.minecraft.gametest.framework.GameTestHelper;
@@ -17,6 +20,10 @@ import net.minecraft.world.level.block.state.BlockState;
 import net.minecraft.world.phys.BlockHitResult;
 import net.minecraft.world.phys.Vec3;
 
+import java.lang.management.ManagementFactory;
+import java.util.HashSet;
+import java.util.Set;
+
 public class TestHelpers {
 
     public static void pullLever(GameTestHelper helper, BlockPos relativePosition) {
@@ -165,4 +172,79 @@ public class TestHelpers {
         helper.assertTrue(chain2HasConnectionToChain1,
                 "Chain at " + pos2 + " does not have a connection to " + pos1);
     }
+
+    /**
+     * Runs a server command as the server (permission level 4), output suppressed.
+     * Relative positions are passed as %s placeholders and converted to absolute coordinates.
+     */
+    public static void runCommand(GameTestHelper helper, String command, BlockPos... relativePositions) {
+        Object[] coordinates = new Object[relativePositions.length];
+        for (int i = 0; i < relativePositions.length; i++) {
+            var absolutePos = helper.absolutePos(relativePositions[i]);
+            coordinates[i] = absolutePos.getX() + " " + absolutePos.getY() + " " + absolutePos.getZ();
+        }
+        var server = helper.getLevel().getServer();
+        var source = server.createCommandSourceStack().withLevel(helper.getLevel()).withSuppressedOutput();
+        server.getCommands().performPrefixedCommand(source, command.formatted(coordinates));
+    }
+
+    /**
+     * Connects two chain blocks in both directions, like the connector item does.
+     */
+    public static void connectChains(GameTestHelper helper, BlockPos pos1, BlockPos pos2) {
+        var absolutePos1 = helper.absolutePos(pos1);
+        var absolutePos2 = helper.absolutePos(pos2);
+        if (!(helper.getLevel().getBlockEntity(absolutePos1) instanceof RedstoneChainEntity chain1)
+                || !(helper.getLevel().getBlockEntity(absolutePos2) instanceof RedstoneChainEntity chain2)) {
+            helper.fail("Expected Redstone Chain blocks at " + pos1 + " and " + pos2);
+            return;
+        }
+        chain1.addConnection(absolutePos2);
+        chain2.addConnection(absolutePos1);
+    }
+
+    /**
+     * Returns the size of the network the chain block at the given position belongs to.
+     */
+    public static int getNetworkSize(GameTestHelper helper, BlockPos pos) {
+        RedstoneNetwork network = RedstoneNetworkManager.get(helper.getLevel()).getNetworkAt(helper.absolutePos(pos));
+        if (network == null) {
+            helper.fail("Block at " + pos + " is not part of a network");
+            return 0;
+        }
+        return network.getSize();
+    }
+
+    /**
+     * Counts the distinct blocks next to the given chain blocks that a power change has to
+     * notify: air and other chain blocks are left out, a block next to several chains counts once.
+     */
+    public static int countUniqueNeighbors(GameTestHelper helper, BlockPos... chainPositions) {
+        Set<BlockPos> neighbors = new HashSet<>();
+        for (BlockPos chain : chainPositions) {
+            for (Direction direction : Direction.values()) {
+                BlockPos neighbor = chain.relative(direction);
+                BlockState state = helper.getBlockState(neighbor);
+                if (!state.isAir() && !(state.getBlock() instanceof RedstoneChainBlock)) {
+                    neighbors.add(neighbor);
+                }
+            }
+        }
+        return neighbors.size();
+    }
+
+    /**
+     * Returns how many bytes the current thread allocated while running the action, using the
+     * JVM's per-thread allocation counter.
+     */
+    public static long measureAllocatedBytes(GameTestHelper helper, Runnable action) {
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads)
+                || !threads.isThreadAllocatedMemorySupported() || !threads.isThreadAllocatedMemoryEnabled()) {
+            helper.fail("This JVM does not count allocated bytes per thread");
+            return 0;
+        }
+        long before = threads.getCurrentThreadAllocatedBytes();
+        action.run();
+        return threads.getCurrentThreadAllocatedBytes() - before;
+    }
 }